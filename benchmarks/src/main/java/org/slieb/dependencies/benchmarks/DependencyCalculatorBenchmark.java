@@ -0,0 +1,39 @@
+package org.slieb.dependencies.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.slieb.dependencies.DependencyCalculator;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DependencyCalculatorBenchmark {
+
+    @Param({"CHAIN", "FAN_OUT", "DIAMOND", "RANDOM_DAG"})
+    public GraphShape shape;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private DependencyCalculator<Integer, SyntheticNode> calculator;
+
+    private Set<String> entryPoints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticGraph graph = new SyntheticGraph(shape, size);
+        calculator = new DependencyCalculator<>(graph.getResources(), graph.getParser());
+        entryPoints = graph.getEntryPoints(10);
+    }
+
+    @Benchmark
+    public List<SyntheticNode> getDependenciesFor() {
+        return calculator.getDependenciesFor(entryPoints);
+    }
+}
@@ -0,0 +1,53 @@
+package org.slieb.dependencies.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.slieb.dependencies.CompactDependencyGraph;
+import org.slieb.dependencies.DependencyMapResolver;
+import org.slieb.dependencies.DependencyUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DependencyMapResolverBenchmark {
+
+    @Param({"CHAIN", "FAN_OUT", "DIAMOND", "RANDOM_DAG"})
+    public GraphShape shape;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Map<SyntheticNode, Set<SyntheticNode>> dependencyMap;
+
+    private CompactDependencyGraph<SyntheticNode> compactGraph;
+
+    private List<SyntheticNode> entryNodes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticGraph graph = new SyntheticGraph(shape, size);
+        final Map<String, SyntheticNode> provideMap = DependencyUtils.getProvideMap(graph.getNodes());
+        dependencyMap = DependencyUtils.getDependencyMap(graph.getNodes(), provideMap);
+        compactGraph = CompactDependencyGraph.fromDependencyMap(dependencyMap);
+        entryNodes = graph.getEntryPoints(10).stream().map(provideMap::get).collect(toList());
+    }
+
+    @Benchmark
+    public List<SyntheticNode> resolveNodes() {
+        return new DependencyMapResolver<>(dependencyMap).resolveNodes(entryNodes).resolve();
+    }
+
+    @Benchmark
+    public List<SyntheticNode> resolveCompactGraph() {
+        return compactGraph.resolve(entryNodes);
+    }
+}
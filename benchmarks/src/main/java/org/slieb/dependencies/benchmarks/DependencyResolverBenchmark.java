@@ -0,0 +1,49 @@
+package org.slieb.dependencies.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.slieb.dependencies.CompiledDependencyGraph;
+import org.slieb.dependencies.DependencyGraph;
+import org.slieb.dependencies.DependencyResolver;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DependencyResolverBenchmark {
+
+    @Param({"CHAIN", "FAN_OUT", "DIAMOND", "RANDOM_DAG"})
+    public GraphShape shape;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<SyntheticNode> nodes;
+
+    private DependencyGraph<SyntheticNode> dependencyGraph;
+
+    private Set<String> entryPoints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticGraph graph = new SyntheticGraph(shape, size);
+        nodes = graph.getNodes();
+        dependencyGraph = CompiledDependencyGraph.compile(nodes);
+        entryPoints = graph.getEntryPoints(10);
+    }
+
+    @Benchmark
+    public List<SyntheticNode> resolveNamespaces() {
+        return new DependencyResolver<>(dependencyGraph).resolveNamespaces(entryPoints).resolve();
+    }
+
+    @Benchmark
+    public List<SyntheticNode> compileAndResolveNamespaces() {
+        return new DependencyResolver<>(nodes).resolveNamespaces(entryPoints).resolve();
+    }
+}
@@ -0,0 +1,36 @@
+package org.slieb.dependencies.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.slieb.dependencies.DependencyUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DependencyUtilsBenchmark {
+
+    @Param({"CHAIN", "FAN_OUT", "DIAMOND", "RANDOM_DAG"})
+    public GraphShape shape;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<SyntheticNode> nodes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        nodes = new SyntheticGraph(shape, size).getNodes();
+    }
+
+    @Benchmark
+    public Map<SyntheticNode, Set<SyntheticNode>> getDependencyMap() {
+        return DependencyUtils.getDependencyMap(nodes);
+    }
+}
@@ -0,0 +1,103 @@
+package org.slieb.dependencies.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.slieb.dependencies.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap a parsed graph retains, with the plain nodes a parser usually returns and with compact nodes of
+ * one {@link NamespaceTable}. Every node is built from fresh strings, as if it was parsed from its own file, and the
+ * graph is compiled the way {@link DependencyCalculator#getDependencyGraph(Collection)} compiles it.
+ * <p>
+ * The retained size is the used heap after a full collection, minus the used heap before the graph was built, and is
+ * reported per node as the {@code bytesPerNode} counter. It depends on the collector, so compare the representations
+ * within one run, for example with {@code -p shape=RANDOM_DAG -p size=1000000}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FootprintBenchmark {
+
+    public enum Representation {
+        PLAIN,
+        COMPACT
+    }
+
+    @Param({"PLAIN", "COMPACT"})
+    public Representation representation;
+
+    @Param({"FAN_OUT", "RANDOM_DAG"})
+    public GraphShape shape;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private int[][] requires;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Retained {
+
+        public long bytesPerNode;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(0x5EED);
+        requires = new int[size][];
+        for (int i = 0; i < size; i++) {
+            requires[i] = shape.requires(i, size, random).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    @Benchmark
+    public DependencyGraph<?> build(final Retained retained) {
+        final long before = usedHeap();
+        final DependencyGraph<?> graph = representation == Representation.PLAIN ? plain() : compact();
+        retained.bytesPerNode = (usedHeap() - before) / size;
+        return graph;
+    }
+
+    private DependencyGraph<SyntheticNode> plain() {
+        final List<SyntheticNode> nodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final Set<String> nodeRequires = new HashSet<>();
+            for (int require : requires[i]) {
+                nodeRequires.add(SyntheticGraph.namespace(require));
+            }
+            nodes.add(new SyntheticNode(i, nodeRequires));
+        }
+        return new DependencyCalculator<Integer, SyntheticNode>(Collections.emptyList(), null)
+                .getDependencyGraph(nodes);
+    }
+
+    private DependencyGraph<CompactDependencyNode<Integer>> compact() {
+        final NamespaceTable table = new NamespaceTable();
+        final List<CompactDependencyNode<Integer>> nodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final List<String> nodeRequires = new ArrayList<>(requires[i].length);
+            for (int require : requires[i]) {
+                nodeRequires.add(SyntheticGraph.namespace(require));
+            }
+            nodes.add(CompactDependencyNode.create(
+                    table, i, Collections.singleton(SyntheticGraph.namespace(i)), nodeRequires));
+        }
+        return new DependencyCalculator<Integer, CompactDependencyNode<Integer>>(Collections.emptyList(), null)
+                .getDependencyGraph(nodes);
+    }
+
+    private static long usedHeap() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
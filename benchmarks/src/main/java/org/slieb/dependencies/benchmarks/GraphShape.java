@@ -0,0 +1,83 @@
+package org.slieb.dependencies.benchmarks;
+
+import java.util.*;
+
+/**
+ * The shapes of generated dependency graphs. Node {@code i} only ever requires nodes with a lower id, so every shape
+ * is acyclic and the node with the highest id is a natural entry point.
+ */
+public enum GraphShape {
+
+    /**
+     * Every node requires the node before it, so the require chain is as deep as the graph.
+     */
+    CHAIN {
+        @Override
+        List<Integer> requires(final int node,
+                               final int size,
+                               final Random random) {
+            return node == 0 ? Collections.emptyList() : Collections.singletonList(node - 1);
+        }
+    },
+
+    /**
+     * The last node requires every other node, and no other node requires anything.
+     */
+    FAN_OUT {
+        @Override
+        List<Integer> requires(final int node,
+                               final int size,
+                               final Random random) {
+            if (node != size - 1) {
+                return Collections.emptyList();
+            }
+            final List<Integer> requires = new ArrayList<>(node);
+            for (int i = 0; i < node; i++) {
+                requires.add(i);
+            }
+            return requires;
+        }
+    },
+
+    /**
+     * Every node requires the two nodes before it, forming a ladder of diamonds that share most of their subgraph.
+     */
+    DIAMOND {
+        @Override
+        List<Integer> requires(final int node,
+                               final int size,
+                               final Random random) {
+            if (node == 0) {
+                return Collections.emptyList();
+            } else if (node == 1) {
+                return Collections.singletonList(0);
+            } else {
+                return Arrays.asList(node - 1, node - 2);
+            }
+        }
+    },
+
+    /**
+     * Every node requires up to three random nodes with a lower id.
+     */
+    RANDOM_DAG {
+        @Override
+        List<Integer> requires(final int node,
+                               final int size,
+                               final Random random) {
+            if (node == 0) {
+                return Collections.emptyList();
+            }
+            final int count = 1 + random.nextInt(3);
+            final List<Integer> requires = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                requires.add(random.nextInt(node));
+            }
+            return requires;
+        }
+    };
+
+    abstract List<Integer> requires(int node,
+                                    int size,
+                                    Random random);
+}
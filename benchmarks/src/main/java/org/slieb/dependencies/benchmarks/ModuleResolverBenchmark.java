@@ -0,0 +1,50 @@
+package org.slieb.dependencies.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.slieb.dependencies.DependencyUtils;
+import org.slieb.dependencies.ModuleNode;
+import org.slieb.dependencies.ModuleResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModuleResolverBenchmark {
+
+    @Param({"CHAIN", "FAN_OUT", "DIAMOND", "RANDOM_DAG"})
+    public GraphShape shape;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"50"})
+    public int modules;
+
+    private Map<SyntheticNode, Set<SyntheticNode>> dependencyMap;
+
+    private List<String> entryPoints;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SyntheticGraph graph = new SyntheticGraph(shape, size);
+        dependencyMap = DependencyUtils.getDependencyMap(graph.getNodes());
+        entryPoints = new ArrayList<>(graph.getEntryPoints(modules));
+    }
+
+    @Benchmark
+    public List<ModuleNode<SyntheticNode>> resolve() {
+        final ModuleResolver<SyntheticNode> resolver = new ModuleResolver<>(dependencyMap, "common");
+        for (int i = 0; i < entryPoints.size(); i++) {
+            resolver.resolveModuleWithNamespace("module_" + i, entryPoints.get(i));
+        }
+        return resolver.resolve();
+    }
+}
@@ -0,0 +1,71 @@
+package org.slieb.dependencies.benchmarks;
+
+import org.slieb.dependencies.DependencyParser;
+
+import java.util.*;
+
+/**
+ * A generated dependency graph. Graphs are generated from a fixed seed, so every benchmark run sees the same graph.
+ */
+public class SyntheticGraph {
+
+    private static final long SEED = 0x5EED;
+
+    private final List<SyntheticNode> nodes;
+
+    private final List<Integer> resources;
+
+    public SyntheticGraph(final GraphShape shape,
+                          final int size) {
+        final Random random = new Random(SEED);
+        this.nodes = new ArrayList<>(size);
+        this.resources = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final Set<String> requires = new LinkedHashSet<>();
+            shape.requires(i, size, random).forEach(require -> requires.add(namespace(require)));
+            nodes.add(new SyntheticNode(i, Collections.unmodifiableSet(requires)));
+            resources.add(i);
+        }
+    }
+
+    public static String namespace(final int node) {
+        return "ns." + node;
+    }
+
+    public List<SyntheticNode> getNodes() {
+        return nodes;
+    }
+
+    public List<Integer> getResources() {
+        return resources;
+    }
+
+    /**
+     * @return A parser that looks a resource's node up by id.
+     */
+    public DependencyParser<Integer, SyntheticNode> getParser() {
+        return nodes::get;
+    }
+
+    /**
+     * @return The namespace of the node with the highest id, which reaches the most of the graph.
+     */
+    public String getEntryPoint() {
+        return namespace(nodes.size() - 1);
+    }
+
+    /**
+     * @param count The number of entry points.
+     * @return Random namespaces from the upper half of the graph, or all of the upper half if it has fewer than
+     * {@code count} nodes.
+     */
+    public Set<String> getEntryPoints(final int count) {
+        final Random random = new Random(SEED);
+        final Set<String> entryPoints = new LinkedHashSet<>();
+        final int size = nodes.size(), first = size / 2, range = size - first;
+        while (entryPoints.size() < Math.min(count, range)) {
+            entryPoints.add(namespace(first + random.nextInt(range)));
+        }
+        return entryPoints;
+    }
+}
@@ -0,0 +1,43 @@
+package org.slieb.dependencies.benchmarks;
+
+import org.slieb.dependencies.DependencyNode;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A dependency node of a generated graph. The resource is the node's id and it provides exactly one namespace.
+ */
+public class SyntheticNode implements DependencyNode<Integer> {
+
+    private final Integer resource;
+
+    private final Set<String> provides, requires;
+
+    public SyntheticNode(final Integer resource,
+                         final Set<String> requires) {
+        this.resource = resource;
+        this.provides = Collections.singleton(SyntheticGraph.namespace(resource));
+        this.requires = requires;
+    }
+
+    @Override
+    public Integer getResource() {
+        return resource;
+    }
+
+    @Override
+    public Set<String> getRequires() {
+        return requires;
+    }
+
+    @Override
+    public Set<String> getProvides() {
+        return provides;
+    }
+
+    @Override
+    public String toString() {
+        return "SyntheticNode{" + resource + "}";
+    }
+}
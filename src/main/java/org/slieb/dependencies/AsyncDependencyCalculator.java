@@ -0,0 +1,240 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The asynchronous counterpart of {@link DependencyCalculator}, for resources that are parsed with an
+ * {@link AsyncDependencyParser}.
+ * <p>
+ * Without a provide index every resource has to be parsed before the provider of a namespace is known, so every
+ * fetch is started at once and the namespaces are resolved when the last one completes. With a provide index, a map
+ * of namespace to the resource that provides it that is known up front, such as a manifest or a
+ * {@link DependencyGraphSnapshot}, only the resources reachable from the requested namespaces are fetched: the
+ * requires of every node are followed as soon as it arrives. In that case the {@link DependenciesHelper} only sees
+ * the fetched nodes.
+ * <p>
+ * Parsed nodes are kept, so later requests only fetch resources that no earlier request needed. A failed fetch is
+ * started again by the next request that needs the resource.
+ *
+ * @param <R> The resource type.
+ * @param <D> The dependency node type.
+ */
+public class AsyncDependencyCalculator<R, D extends DependencyNode<R>> {
+
+    private final Iterable<R> resources;
+
+    private final AsyncDependencyParser<R, D> parser;
+
+    private final Function<String, R> provideIndex;
+
+    private final DependenciesHelper<D> dependenciesHelper;
+
+    private final Map<R, CompletableFuture<D>> nodes;
+
+    /**
+     * @param resources          The resources. They are only read without a provide index.
+     * @param parser             The parser.
+     * @param provideIndex       Returns the resource that provides a namespace, or null if nothing does. If null,
+     *                           every resource is parsed.
+     * @param dependenciesHelper The helper.
+     */
+    public AsyncDependencyCalculator(final Iterable<R> resources,
+                                     final AsyncDependencyParser<R, D> parser,
+                                     final Function<String, R> provideIndex,
+                                     final DependenciesHelper<D> dependenciesHelper) {
+        this.resources = resources;
+        this.parser = parser;
+        this.provideIndex = provideIndex;
+        this.dependenciesHelper = dependenciesHelper;
+        this.nodes = new ConcurrentHashMap<>();
+    }
+
+    public AsyncDependencyCalculator(final Iterable<R> resources,
+                                     final AsyncDependencyParser<R, D> parser) {
+        this(resources, parser, null, new DependencyCalculator.DefaultHelper<>());
+    }
+
+    public AsyncDependencyCalculator(final AsyncDependencyParser<R, D> parser,
+                                     final Function<String, R> provideIndex) {
+        this(Collections.emptyList(), parser, provideIndex, new DependencyCalculator.DefaultHelper<>());
+    }
+
+    private CompletableFuture<D> fetch(final R resource) {
+        return nodes.compute(resource, (r, existing) -> existing == null || existing.isCompletedExceptionally() ?
+                parser.parseAsync(r).toCompletableFuture() : existing);
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return A future of the dependencies, in the order {@link DependencyCalculator#getDependenciesFor(Set)} gives.
+     */
+    public CompletableFuture<List<D>> getDependenciesForAsync(final Collection<String> namespaces) {
+        if (namespaces == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        if (provideIndex == null) {
+            final List<CompletableFuture<D>> futures = new ArrayList<>();
+            resources.forEach(resource -> futures.add(fetch(resource)));
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+                    .thenApply(ignored -> {
+                        final List<D> parsed = futures.stream().map(CompletableFuture::join).collect(toList());
+                        return new DependencyResolver<>(
+                                InternedDependencyGraph.compileShared(dependenciesHelper.getResolvableSet(parsed)),
+                                dependenciesHelper.getBaseList(parsed))
+                                .resolveNamespaces(namespaces)
+                                .resolve();
+                    });
+        }
+        final Fetch fetch = new Fetch();
+        fetch.add(namespaces);
+        fetch.finish();
+        return fetch.done.thenApply(ignored -> {
+            final List<D> fetched = fetch.resources.stream().map(r -> nodes.get(r).join()).collect(toList());
+            return new DependencyResolver<>(new IndexedGraph(dependenciesHelper.getResolvableSet(fetched)),
+                                            dependenciesHelper.getBaseList(fetched))
+                    .resolveNamespaces(namespaces)
+                    .resolve();
+        });
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return A future of the resources of {@link #getDependenciesForAsync(Collection)}.
+     */
+    public CompletableFuture<List<R>> getResourcesForAsync(final Collection<String> namespaces) {
+        return getDependenciesForAsync(namespaces).thenApply(
+                dependencies -> dependencies.stream().map(DependencyNode::getResource).collect(toList()));
+    }
+
+    /**
+     * Follows the requires of every fetched node through the provide index. Namespaces go through a queue that one
+     * thread at a time drains, and fetch callbacks only add to it, so a fetch that is already complete does not
+     * recurse into the next one however deep the requires go.
+     * <p>
+     * The pending count covers every queued namespace and every running fetch, and starts at one for the namespaces
+     * that are still being added, so the fetch cannot complete before all of them are. Any exception, from the
+     * provide index, the parser or a node, fails the fetch.
+     */
+    private class Fetch {
+
+        private final Set<R> resources = ConcurrentHashMap.newKeySet();
+
+        private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        private final AtomicInteger draining = new AtomicInteger();
+
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private void add(final Collection<String> namespaces) {
+            for (String namespace : namespaces) {
+                pending.incrementAndGet();
+                queue.add(namespace);
+            }
+            drain();
+        }
+
+        /**
+         * Drains the queue on the calling thread, unless another thread is already draining it. That thread then sees
+         * the new namespaces before it stops.
+         */
+        private void drain() {
+            int missed = draining.incrementAndGet();
+            if (missed != 1) {
+                return;
+            }
+            while (missed != 0) {
+                for (String namespace = queue.poll(); namespace != null; namespace = queue.poll()) {
+                    try {
+                        if (!done.isDone()) {
+                            namespace(namespace);
+                        }
+                    } catch (Throwable failure) {
+                        done.completeExceptionally(failure);
+                    }
+                    finish();
+                }
+                missed = draining.addAndGet(-missed);
+            }
+        }
+
+        private void namespace(final String namespace) {
+            final R resource = provideIndex.apply(namespace);
+            if (resource == null) {
+                done.completeExceptionally(DependencyException.nothingProvides(namespace));
+            } else if (resources.add(resource)) {
+                pending.incrementAndGet();
+                fetch(resource).whenComplete((node, failure) -> {
+                    try {
+                        if (failure != null) {
+                            done.completeExceptionally(failure);
+                        } else if (!done.isDone()) {
+                            add(node.getRequires());
+                        }
+                    } catch (Throwable exception) {
+                        done.completeExceptionally(exception);
+                    } finally {
+                        finish();
+                    }
+                });
+            }
+        }
+
+        private void finish() {
+            if (pending.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * A graph of the fetched nodes that finds providers through the provide index.
+     */
+    private class IndexedGraph implements DependencyGraph<D> {
+
+        private final Set<D> fetched;
+
+        private IndexedGraph(final Set<D> fetched) {
+            this.fetched = fetched;
+        }
+
+        @Override
+        public Collection<D> getNodes() {
+            return fetched;
+        }
+
+        @Override
+        public boolean containsNode(final D node) {
+            return fetched.contains(node);
+        }
+
+        @Override
+        public D getProvider(final String namespace) {
+            final R resource = provideIndex.apply(namespace);
+            final CompletableFuture<D> future = resource == null ? null : nodes.get(resource);
+            final D node = future == null ? null : future.getNow(null);
+            return node != null && fetched.contains(node) ? node : null;
+        }
+
+        @Override
+        public List<D> getDependencies(final D node) throws DependencyException {
+            final List<D> result = new ArrayList<>(node.getRequires().size());
+            for (String namespace : node.getRequires()) {
+                final D provider = getProvider(namespace);
+                if (provider == null) {
+                    throw DependencyException.nothingProvides(namespace);
+                }
+                result.add(provider);
+            }
+            return result;
+        }
+    }
+}
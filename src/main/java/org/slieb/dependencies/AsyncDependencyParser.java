@@ -0,0 +1,34 @@
+package org.slieb.dependencies;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * A parser of resources that have to be fetched first, such as files in a remote blob store. Parsing returns as soon
+ * as the fetch is started, so no thread waits for it.
+ *
+ * @param <T> The resource type.
+ * @param <D> The dependency node type.
+ */
+@FunctionalInterface
+public interface AsyncDependencyParser<T, D extends DependencyNode<T>> {
+
+    /**
+     * @param resource The resource to fetch and parse.
+     * @return A stage that completes with the parsed node, or with the failure.
+     */
+    CompletionStage<D> parseAsync(T resource);
+
+    /**
+     * @param parser   A blocking parser.
+     * @param executor The executor to run it on.
+     * @param <T>      The resource type.
+     * @param <D>      The dependency node type.
+     * @return An asynchronous parser that runs the blocking parser on the executor.
+     */
+    static <T, D extends DependencyNode<T>> AsyncDependencyParser<T, D> fromParser(final DependencyParser<T, D> parser,
+                                                                                   final Executor executor) {
+        return resource -> CompletableFuture.supplyAsync(() -> parser.parse(resource), executor);
+    }
+}
@@ -0,0 +1,49 @@
+package org.slieb.dependencies;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link DependencyParser} that can parse many resources in one call.
+ *
+ * @param <T> The resource type.
+ * @param <D> The dependency node type.
+ */
+public interface BatchDependencyParser<T, D extends DependencyNode<T>> extends DependencyParser<T, D> {
+
+    /**
+     * @param resources The resources to parse.
+     * @return The parsed dependency node of every resource, in the iteration order of the resources.
+     * @throws DependencyException If resources could not be parsed.
+     */
+    Map<T, D> parseAll(Iterable<T> resources) throws DependencyException;
+
+    /**
+     * Parses like {@link #parseAll(Iterable)}, and tells {@code onFailure} about every resource that failed to parse,
+     * whether the parser then handles the failure or throws it. The default implementation can only see thrown
+     * failures: it reports the resources of a {@link DependencyException#getParseFailures()} one by one, and any other
+     * failure against every resource of the batch.
+     *
+     * @param resources The resources to parse.
+     * @param onFailure Receives every resource that failed to parse, with its failure.
+     * @return The parsed dependency node of every resource, in the iteration order of the resources.
+     * @throws DependencyException If resources could not be parsed.
+     */
+    @SuppressWarnings("unchecked")
+    default Map<T, D> parseAll(Iterable<T> resources,
+                               BiConsumer<? super T, ? super Throwable> onFailure) throws DependencyException {
+        try {
+            return parseAll(resources);
+        } catch (RuntimeException exception) {
+            final Map<Object, Throwable> failures = exception instanceof DependencyException ?
+                    ((DependencyException) exception).getParseFailures() : Collections.emptyMap();
+            if (failures.isEmpty()) {
+                resources.forEach(resource -> onFailure.accept(resource, exception));
+            } else {
+                failures.forEach((resource, failure) -> onFailure.accept((T) resource, failure));
+            }
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.slieb.dependencies;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A {@link DependencyCalculator} that keeps the parsed dependency nodes and the dependency graph between calls. Before
+ * each query the resources are checked with a {@link ResourceChangeDetector}, and only new or changed resources are
+ * parsed again. The graph is a {@link MutableDependencyGraph}: changed nodes are replaced in it, and new and removed
+ * nodes are added and removed, without rebuilding it. When given a {@link ClosureCache}, namespace queries are answered
+ * from it, and a refresh only drops the cached closures that the changed nodes affect. A refresh that changes the
+ * base list replaces the resolver, which drops every cached closure.
+ * <p>
+ * Resolvers handed out by this calculator resolve against the live graph and see later refreshes. Namespace and
+ * resource queries resolve under the read lock of the graph, and batch queries index a snapshot of it, so neither sees
+ * a refresh that happens while they run. Streams are not isolated: they resolve lazily against the live graph, so a
+ * stream that is consumed while another thread refreshes can mix both states of the graph or fail on a namespace the
+ * refresh removed.
+ *
+ * @param <R> The resource type.
+ * @param <D> The dependency node type.
+ */
+public class CachingDependencyCalculator<R, D extends DependencyNode<R>> extends DependencyCalculator<R, D> {
+
+    protected final ResourceChangeDetector<R> changeDetector;
+
+    private final Map<R, ParsedResource<D>> parsedResources;
+
+    private Collection<D> dependencyNodes;
+
+    private MutableDependencyGraph<D> dependencyGraph;
+
+    private ConcurrentDependencyResolver<D> concurrentResolver;
+
+    protected final ClosureCache<D> closureCache;
+
+    public CachingDependencyCalculator(Iterable<R> resources,
+                                       DependencyParser<R, D> parser,
+                                       DependenciesHelper<D> helper,
+                                       ResourceChangeDetector<R> changeDetector,
+                                       ClosureCache<D> closureCache) {
+        super(resources, parser, helper);
+        this.changeDetector = changeDetector;
+        this.closureCache = closureCache;
+        this.parsedResources = new HashMap<>();
+    }
+
+    public CachingDependencyCalculator(Iterable<R> resources,
+                                       DependencyParser<R, D> parser,
+                                       DependenciesHelper<D> helper,
+                                       ResourceChangeDetector<R> changeDetector) {
+        this(resources, parser, helper, changeDetector, null);
+    }
+
+    public CachingDependencyCalculator(Iterable<R> resources,
+                                       DependencyParser<R, D> parser,
+                                       ResourceChangeDetector<R> changeDetector) {
+        this(resources, parser, new DefaultHelper<>(), changeDetector);
+    }
+
+    /**
+     * @param listener A listener that is told about parsing, index building, every resolve and the closure cache.
+     * @return A reference to the calculator.
+     */
+    @Override
+    public synchronized CachingDependencyCalculator<R, D> withListener(DependencyListener listener) {
+        super.withListener(listener);
+        if (concurrentResolver != null) {
+            concurrentResolver = concurrentResolver.withListener(listener);
+        }
+        return this;
+    }
+
+    /**
+     * Checks every resource for changes, parses the ones that are new or changed and forgets the ones that are no
+     * longer present.
+     *
+     * @return True if anything changed since the last refresh.
+     */
+    public synchronized boolean refresh() {
+        final Map<R, Object> changed = new LinkedHashMap<>();
+        final Map<D, D> replaced = new LinkedHashMap<>();
+        final Set<R> present = new HashSet<>();
+        for (R resource : resources) {
+            present.add(resource);
+            final Object fingerprint = changeDetector.getFingerprint(resource);
+            final ParsedResource<D> parsed = parsedResources.get(resource);
+            if (parsed == null || !Objects.equals(parsed.fingerprint, fingerprint)) {
+                changed.put(resource, fingerprint);
+            } else {
+                listener.cacheHit(resource);
+            }
+        }
+        if (!changed.isEmpty()) {
+            parseResources(changed.keySet()).forEach((resource, node) -> {
+                final ParsedResource<D> previous = parsedResources.put(
+                        resource, new ParsedResource<>(changed.get(resource), node));
+                if (previous != null) {
+                    replaced.put(previous.node, node);
+                }
+            });
+        }
+        final boolean removed = parsedResources.keySet().retainAll(present);
+        if (!changed.isEmpty() || removed || concurrentResolver == null) {
+            final Set<D> nodes = new HashSet<>();
+            parsedResources.values().forEach(parsed -> nodes.add(parsed.node));
+            dependencyNodes = Collections.unmodifiableSet(nodes);
+            final List<D> baseList = dependenciesHelper.getBaseList(dependencyNodes);
+            if (dependencyGraph == null) {
+                dependencyGraph = (MutableDependencyGraph<D>) getDependencyGraph(dependencyNodes);
+            } else {
+                final Set<String> affected = new HashSet<>();
+                dependencyGraph.withWriteLock(() -> {
+                    updateGraph(replaced, affected);
+                    if (closureCache != null) {
+                        closureCache.invalidate(affected);
+                    }
+                });
+            }
+            if (concurrentResolver == null || !concurrentResolver.getBaseList().equals(baseList)) {
+                concurrentResolver =
+                        new ConcurrentDependencyResolver<>(dependencyGraph, baseList).withListener(listener);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Brings the graph in line with the resolvable set of the parsed nodes. Changed nodes are replaced in place, so
+     * they keep their priority as providers.
+     */
+    private void updateGraph(final Map<D, D> replaced,
+                             final Set<String> affected) {
+        final long start = DependencyListener.start(listener);
+        final Set<D> resolvable = dependenciesHelper.getResolvableSet(dependencyNodes);
+        replaced.forEach((oldNode, newNode) -> {
+            if (dependencyGraph.containsNode(oldNode) && resolvable.contains(newNode)) {
+                affected.addAll(dependencyGraph.replaceNode(oldNode, newNode).getAffectedNamespaces());
+            }
+        });
+        for (D node : dependencyGraph.getNodes()) {
+            if (!resolvable.contains(node)) {
+                affected.addAll(dependencyGraph.removeNode(node).getAffectedNamespaces());
+            }
+        }
+        for (D node : resolvable) {
+            if (!dependencyGraph.containsNode(node)) {
+                affected.addAll(dependencyGraph.addNode(node).getAffectedNamespaces());
+            }
+        }
+        DependencyListener.end(listener, DependencyListener.Phase.INDEX, start);
+    }
+
+    /**
+     * @param dependencies The dependency collection.
+     * @return A new mutable graph of the resolvable set of the dependencies.
+     */
+    @Override
+    public DependencyGraph<D> getDependencyGraph(Collection<D> dependencies) {
+        final long start = DependencyListener.start(listener);
+        final MutableDependencyGraph<D> graph =
+                new MutableDependencyGraph<>(dependenciesHelper.getResolvableSet(dependencies));
+        DependencyListener.end(listener, DependencyListener.Phase.INDEX, start);
+        return graph;
+    }
+
+    /**
+     * Indexes a snapshot of the graph, compiled under its read lock, so a batch resolve sees one state of the graph
+     * even when another thread refreshes while it runs. The snapshot has the providers the graph has, because both
+     * pick the node that comes first in priority order.
+     *
+     * @return An index over a snapshot of the graph and the current base list.
+     */
+    @Override
+    protected ReachabilityIndex<D> getReachabilityIndex() {
+        final ConcurrentDependencyResolver<D> resolver = getConcurrentDependencyResolver();
+        final DependencyGraph<D> snapshot =
+                dependencyGraph.withReadLock(() -> CompiledDependencyGraph.compile(dependencyGraph.getNodes()));
+        return new ReachabilityIndex<>(
+                new ConcurrentDependencyResolver<>(snapshot, resolver.getBaseList()).withListener(listener));
+    }
+
+    @Override
+    public synchronized Collection<D> getDependencyNodes() {
+        refresh();
+        return dependencyNodes;
+    }
+
+    @Override
+    public synchronized DependencyResolver<D> getDependencyResolver() {
+        refresh();
+        return new DependencyResolver<>(concurrentResolver.getDependencyGraph(), concurrentResolver.getBaseList())
+                .withListener(listener);
+    }
+
+    @Override
+    public synchronized ConcurrentDependencyResolver<D> getConcurrentDependencyResolver() {
+        refresh();
+        return concurrentResolver;
+    }
+
+    /**
+     * Writes a snapshot of the current dependency nodes, fingerprinted with this calculator's change detector. The
+     * snapshot resolves the resolvable set of the nodes and starts with their base list, as this calculator does.
+     *
+     * @param file         The snapshot file.
+     * @param resourceKeys Gives every resource a unique key.
+     * @throws IOException If the file cannot be written.
+     * @see DependencyGraphSnapshot#isCurrent(Collection, Function, ResourceChangeDetector)
+     */
+    public void writeSnapshot(Path file,
+                              Function<R, String> resourceKeys) throws IOException {
+        DependencyGraphSnapshot.write(file, getDependencyNodes(), dependenciesHelper, resourceKeys, changeDetector);
+    }
+
+    @Override
+    public List<D> getDependenciesFor(Set<String> namespaces) {
+        final ConcurrentDependencyResolver<D> resolver = getConcurrentDependencyResolver();
+        return dependencyGraph.withReadLock(() -> {
+            if (closureCache != null) {
+                return closureCache.resolveNamespaces(resolver, namespaces);
+            }
+            return resolver.resolveNamespaces(namespaces);
+        });
+    }
+
+    @Override
+    public List<D> getDependenciesFor(R resource) {
+        if (resource == null) {
+            throw DependencyException.cannotResolveNull();
+        }
+        final DependencyResolver<D> resolver = getDependencyResolver();
+        final D node;
+        synchronized (this) {
+            final ParsedResource<D> parsed = parsedResources.get(resource);
+            node = parsed != null ? parsed.node : parse(resource);
+        }
+        return dependencyGraph.withReadLock(() -> resolver.resolveNode(node).resolve());
+    }
+
+    private static class ParsedResource<D> {
+
+        private final Object fingerprint;
+
+        private final D node;
+
+        private ParsedResource(final Object fingerprint,
+                               final D node) {
+            this.fingerprint = fingerprint;
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link BatchDependencyParser} that keeps the provides and requires of every parsed resource in a
+ * {@link ParseResultStore}, so a resource whose content did not change since an earlier run is not parsed again.
+ * <p>
+ * Results are keyed by the fingerprint of a {@link ResourceChangeDetector}, which must identify the content of the
+ * resource. {@link ResourceChangeDetector#contentHash()} reads every file but lets identical files share a result;
+ * {@link ResourceChangeDetector#pathLastModifiedAndSize()} only reads file attributes. A fingerprint that only
+ * identifies a version of some resource, such as {@link ResourceChangeDetector#lastModifiedAndSize()}, must not be
+ * used, since two files could share it.
+ * <p>
+ * Resources that are not in the store are parsed by the wrapped parser, as a batch if it is a
+ * {@link BatchDependencyParser}.
+ *
+ * @param <R> The resource type.
+ * @param <D> The dependency node type.
+ */
+public class CachingDependencyParser<R, D extends DependencyNode<R>> implements BatchDependencyParser<R, D> {
+
+    private final DependencyParser<R, D> parser;
+
+    private final DependencyNodeFactory<R, D> nodeFactory;
+
+    private final ResourceChangeDetector<R> contentKeys;
+
+    private final ParseResultStore store;
+
+    private final AtomicLong hits, misses;
+
+    /**
+     * @param parser      The parser of resources that are not in the store.
+     * @param nodeFactory Creates the nodes of resources that are in the store.
+     * @param contentKeys Gives the key of a resource's content.
+     * @param store       The store of parse results.
+     */
+    public CachingDependencyParser(final DependencyParser<R, D> parser,
+                                   final DependencyNodeFactory<R, D> nodeFactory,
+                                   final ResourceChangeDetector<R> contentKeys,
+                                   final ParseResultStore store) {
+        this.parser = parser;
+        this.nodeFactory = nodeFactory;
+        this.contentKeys = contentKeys;
+        this.store = store;
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    private byte[] getKey(final R resource) {
+        return DependencyGraphSnapshot.encodeFingerprint(contentKeys.getFingerprint(resource));
+    }
+
+    private D fromStore(final R resource,
+                        final byte[] key) {
+        final ParseResultStore.Record record = store.get(key);
+        if (record == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return nodeFactory.create(resource, record.getProvides(), record.getRequires());
+    }
+
+    private void toStore(final byte[] key,
+                         final D node) {
+        store.put(key, node.getProvides(), node.getRequires());
+    }
+
+    @Override
+    public D parse(final R resource) {
+        final byte[] key = getKey(resource);
+        final D cached = fromStore(resource, key);
+        if (cached != null) {
+            return cached;
+        }
+        final D node = parser.parse(resource);
+        toStore(key, node);
+        return node;
+    }
+
+    @Override
+    public Map<R, D> parseAll(final Iterable<R> resources) throws DependencyException {
+        return parseAll(resources, (resource, failure) -> {
+        });
+    }
+
+    @Override
+    public Map<R, D> parseAll(final Iterable<R> resources,
+                              final BiConsumer<? super R, ? super Throwable> onFailure)
+            throws DependencyException {
+        final Map<R, D> result = new LinkedHashMap<>();
+        final Map<R, byte[]> missing = new LinkedHashMap<>();
+        for (R resource : resources) {
+            final byte[] key = getKey(resource);
+            final D cached = fromStore(resource, key);
+            result.put(resource, cached);
+            if (cached == null) {
+                missing.put(resource, key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        final Map<R, D> parsed;
+        if (parser instanceof BatchDependencyParser) {
+            parsed = ((BatchDependencyParser<R, D>) parser).parseAll(missing.keySet(), onFailure);
+        } else {
+            parsed = new HashMap<>();
+            for (R resource : missing.keySet()) {
+                try {
+                    parsed.put(resource, parser.parse(resource));
+                } catch (RuntimeException exception) {
+                    onFailure.accept(resource, exception);
+                    throw exception;
+                }
+            }
+        }
+        for (Map.Entry<R, byte[]> entry : missing.entrySet()) {
+            final D node = parsed.get(entry.getKey());
+            if (node == null) {
+                result.remove(entry.getKey());
+            } else {
+                result.put(entry.getKey(), node);
+                toStore(entry.getValue(), node);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of resources that were found in the store.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of resources that had to be parsed.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
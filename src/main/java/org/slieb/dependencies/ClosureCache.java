@@ -0,0 +1,211 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+
+/**
+ * A bounded cache of resolved namespace closures.
+ * <p>
+ * The closure of every single namespace is cached as a building block: the nodes that namespace adds on top of the
+ * base list, in resolution order. A set of namespaces is resolved by concatenating the blocks of its namespaces in
+ * iteration order and skipping nodes that were already added, which gives exactly the order a fresh resolve gives.
+ * Complete results are cached as well, keyed by the namespaces in iteration order, because two equal sets that
+ * iterate differently resolve to different, equally valid orders.
+ * <p>
+ * The cache is weighed by the total number of nodes it holds and evicts the least recently used entries once that
+ * exceeds the maximum weight. Entries belong to the resolver they were computed with; resolving with a different
+ * resolver, such as one built over a changed node set, drops every entry. A resolver over a
+ * {@link MutableDependencyGraph} stays the same across updates, so its stale entries are dropped with
+ * {@link #invalidate(Collection)} instead.
+ * <p>
+ * Hits and misses are reported to the listener of the resolver, next to the resolves that a miss causes.
+ *
+ * @param <D> A extension of the dependency node.
+ */
+public class ClosureCache<D extends DependencyNode<?>> {
+
+    private final long maxWeight;
+
+    private final LinkedHashMap<Object, List<D>> entries;
+
+    private ConcurrentDependencyResolver<D> resolver;
+
+    private long weight, hits, misses, evictions;
+
+    /**
+     * @param maxWeight The maximum number of nodes, summed over every cached closure, that the cache holds.
+     */
+    public ClosureCache(final long maxWeight) {
+        this.maxWeight = maxWeight;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param resolver   The resolver to resolve with on a cache miss.
+     * @param namespaces The namespaces to resolve.
+     * @return The same list {@link ConcurrentDependencyResolver#resolveNamespaces(Collection)} returns.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public List<D> resolveNamespaces(final ConcurrentDependencyResolver<D> resolver,
+                                     final Collection<String> namespaces) throws DependencyException {
+        if (namespaces == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final List<String> key = Collections.unmodifiableList(new ArrayList<>(namespaces));
+        final List<D> cached = lookup(resolver, key);
+        if (cached != null) {
+            resolver.getListener().closureCacheHit(key);
+            return cached;
+        }
+        resolver.getListener().closureCacheMiss(key);
+        final List<D> baseList = resolver.getBaseList();
+        final Set<D> seen = new HashSet<>(baseList);
+        final List<D> result = new ArrayList<>(baseList);
+        for (String namespace : key) {
+            for (D node : resolveBlock(resolver, namespace)) {
+                if (seen.add(node)) {
+                    result.add(node);
+                }
+            }
+        }
+        return store(resolver, key, Collections.unmodifiableList(result));
+    }
+
+    /**
+     * @param resolver  The resolver to resolve with on a cache miss.
+     * @param namespace A namespace.
+     * @return The nodes the namespace needs on top of the resolver's base list, in resolution order.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public List<D> resolveBlock(final ConcurrentDependencyResolver<D> resolver,
+                                final String namespace) throws DependencyException {
+        final List<D> cached = lookup(resolver, namespace);
+        if (cached != null) {
+            resolver.getListener().closureCacheHit(namespace);
+            return cached;
+        }
+        resolver.getListener().closureCacheMiss(namespace);
+        final List<D> resolved = resolver.resolveNamespaces(Collections.singletonList(namespace));
+        final int baseSize = resolver.getBaseList().size();
+        return store(resolver, namespace, Collections.unmodifiableList(
+                new ArrayList<>(resolved.subList(baseSize, resolved.size()))));
+    }
+
+    private synchronized List<D> lookup(final ConcurrentDependencyResolver<D> resolver,
+                                        final Object key) {
+        if (this.resolver != resolver) {
+            invalidateAll();
+            this.resolver = resolver;
+        }
+        final List<D> cached = entries.get(key);
+        if (cached != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return cached;
+    }
+
+    private synchronized List<D> store(final ConcurrentDependencyResolver<D> resolver,
+                                       final Object key,
+                                       final List<D> closure) {
+        if (this.resolver == resolver && closure.size() <= maxWeight) {
+            final List<D> previous = entries.put(key, closure);
+            if (previous != null) {
+                weight -= previous.size();
+            }
+            weight += closure.size();
+            final Iterator<List<D>> iterator = entries.values().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                weight -= iterator.next().size();
+                iterator.remove();
+                evictions++;
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * Drops the cached closures of the namespaces, and every cached result that includes one of them. Use this with
+     * the affected namespaces of a {@link MutableDependencyGraph.Change} to keep everything else cached.
+     *
+     * @param namespaces The namespaces whose closure changed.
+     */
+    public synchronized void invalidate(final Collection<String> namespaces) {
+        final Set<String> changed = namespaces instanceof Set ? (Set<String>) namespaces : new HashSet<>(namespaces);
+        if (changed.isEmpty()) {
+            return;
+        }
+        final Iterator<Map.Entry<Object, List<D>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Object, List<D>> entry = iterator.next();
+            final Object key = entry.getKey();
+            final boolean stale = key instanceof String ? changed.contains(key) :
+                    ((List<?>) key).stream().anyMatch(changed::contains);
+            if (stale) {
+                weight -= entry.getValue().size();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops every cached closure.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return A snapshot of the cache statistics.
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size(), weight);
+    }
+
+    /**
+     * A snapshot of the hit, miss and eviction counts of a {@link ClosureCache}.
+     */
+    public static class Stats {
+
+        private final long hitCount, missCount, evictionCount, size, weight;
+
+        private Stats(final long hitCount,
+                      final long missCount,
+                      final long evictionCount,
+                      final long size,
+                      final long weight) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+            this.weight = weight;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ClosureCache.Stats{hits=%d, misses=%d, evictions=%d, size=%d, weight=%d}",
+                                 hitCount, missCount, evictionCount, size, weight);
+        }
+    }
+}
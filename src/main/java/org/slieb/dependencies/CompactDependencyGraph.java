@@ -0,0 +1,326 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+
+/**
+ * A compact, immutable form of a dependency map. Every node is assigned a dense int id and the edges are stored in
+ * compressed sparse row form: the dependencies of node {@code i} are {@code targets[offsets[i]]} up to
+ * {@code targets[offsets[i + 1]]}. Resolving by id walks plain int arrays and tracks visited state in a
+ * {@link BitSet}, so it allocates nothing per edge.
+ * <p>
+ * Nodes that only appear as a dependency, and not as a key of the dependency map, get an id as well but are marked
+ * as missing. Resolving through them fails the same way {@link DependencyMapResolver} does. When built from a
+ * {@link DependencyGraph}, nodes with a require that nothing provides are marked as missing instead.
+ *
+ * @param <Node> The node type.
+ */
+public class CompactDependencyGraph<Node> {
+
+    static final ThreadLocal<Walk> WALKS = ThreadLocal.withInitial(Walk::new);
+
+    private final Object[] nodes;
+
+    private final Map<Node, Integer> ids;
+
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    private final BitSet missing;
+
+    private final Map<Integer, Object> unprovided;
+
+    private CompactDependencyGraph(final Object[] nodes,
+                                   final Map<Node, Integer> ids,
+                                   final int[] offsets,
+                                   final int[] targets,
+                                   final BitSet missing,
+                                   final Map<Integer, Object> unprovided) {
+        this.nodes = nodes;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.missing = missing;
+        this.unprovided = unprovided;
+    }
+
+    /**
+     * @param dependencyMap A map of node to the nodes it depends on.
+     * @param <Node>        The node type.
+     * @return A compact graph with the same nodes and edges. Ids follow the iteration order of the map.
+     */
+    public static <Node> CompactDependencyGraph<Node> fromDependencyMap(
+            final Map<Node, ? extends Collection<Node>> dependencyMap) {
+        if (dependencyMap == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final Map<Node, Integer> ids = new HashMap<>(dependencyMap.size() * 2);
+        final List<Node> nodes = new ArrayList<>(dependencyMap.size());
+        int edges = 0;
+        for (Map.Entry<Node, ? extends Collection<Node>> entry : dependencyMap.entrySet()) {
+            ids.put(entry.getKey(), nodes.size());
+            nodes.add(entry.getKey());
+            edges += entry.getValue().size();
+        }
+        final int declared = nodes.size();
+        final BitSet missing = new BitSet();
+        final int[] offsets = new int[declared + 1];
+        final int[] targets = new int[edges];
+        int edge = 0;
+        for (Map.Entry<Node, ? extends Collection<Node>> entry : dependencyMap.entrySet()) {
+            offsets[ids.get(entry.getKey())] = edge;
+            for (Node dependency : entry.getValue()) {
+                Integer id = ids.get(dependency);
+                if (id == null) {
+                    id = nodes.size();
+                    ids.put(dependency, id);
+                    nodes.add(dependency);
+                    missing.set(id);
+                }
+                targets[edge++] = id;
+            }
+        }
+        final int[] allOffsets = Arrays.copyOf(offsets, nodes.size() + 1);
+        Arrays.fill(allOffsets, declared, allOffsets.length, edge);
+        return new CompactDependencyGraph<>(nodes.toArray(), ids, allOffsets, targets, missing,
+                                            Collections.emptyMap());
+    }
+
+    /**
+     * @param dependencyGraph A dependency graph.
+     * @param <D>             A extension of the dependency node.
+     * @return A compact graph of the graph's nodes. Ids follow the iteration order of the graph's nodes.
+     */
+    public static <D extends DependencyNode> CompactDependencyGraph<D> fromDependencyGraph(
+            final DependencyGraph<D> dependencyGraph) {
+        final Collection<D> graphNodes = dependencyGraph.getNodes();
+        final Map<D, Integer> ids = new HashMap<>(graphNodes.size() * 2);
+        final List<D> nodes = new ArrayList<>(graphNodes.size());
+        for (D node : graphNodes) {
+            if (!ids.containsKey(node)) {
+                ids.put(node, nodes.size());
+                nodes.add(node);
+            }
+        }
+        final BitSet missing = new BitSet();
+        final Map<Integer, Object> unprovided = new HashMap<>();
+        final int[] offsets = new int[nodes.size() + 1];
+        int[] targets = new int[nodes.size()];
+        int edge = 0;
+        for (int id = 0; id < nodes.size(); id++) {
+            offsets[id] = edge;
+            final List<D> dependencies;
+            try {
+                dependencies = dependencyGraph.getDependencies(nodes.get(id));
+            } catch (DependencyException exception) {
+                missing.set(id);
+                unprovided.put(id, findUnprovided(dependencyGraph, nodes.get(id)));
+                continue;
+            }
+            if (edge + dependencies.size() > targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(targets.length * 2, edge + dependencies.size()));
+            }
+            for (D dependency : dependencies) {
+                targets[edge++] = ids.get(dependency);
+            }
+        }
+        offsets[nodes.size()] = edge;
+        return new CompactDependencyGraph<>(nodes.toArray(), ids, offsets, Arrays.copyOf(targets, edge), missing,
+                                            unprovided);
+    }
+
+    private static Object findUnprovided(final DependencyGraph<?> dependencyGraph,
+                                         final DependencyNode node) {
+        for (Object namespace : node.getRequires()) {
+            if (dependencyGraph.getProvider((String) namespace) == null) {
+                return namespace;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @return The number of nodes, including missing ones.
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * @return The number of edges.
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param node A node.
+     * @return The id of the node, or -1 if it is not part of the graph.
+     */
+    public int getId(final Node node) {
+        final Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id A node id.
+     * @return The node with the id.
+     */
+    @SuppressWarnings("unchecked")
+    public Node getNode(final int id) {
+        return (Node) nodes[id];
+    }
+
+    /**
+     * @param id A node id.
+     * @return True if the node only appears as a dependency, or if one of its requires is not provided.
+     */
+    public boolean isMissing(final int id) {
+        return missing.get(id);
+    }
+
+    /**
+     * @param id A node id.
+     * @return The number of dependencies of the node.
+     */
+    public int getDependencyCount(final int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * @param id    A node id.
+     * @param index The position of the dependency, between 0 and the dependency count.
+     * @return The id of the dependency.
+     */
+    public int getDependency(final int id,
+                             final int index) {
+        return targets[offsets[id] + index];
+    }
+
+    /**
+     * Resolves the entry points in order, skipping nodes that are already resolved.
+     *
+     * @param entryPoints The ids of the nodes to resolve.
+     * @param resolved    The ids that are already resolved. Resolved ids are added to it.
+     * @return The ids of the newly resolved nodes, with every node after its dependencies.
+     * @throws DependencyException If a node is missing or a cycle is found.
+     */
+    public int[] resolveIds(final int[] entryPoints,
+                            final BitSet resolved) throws DependencyException {
+        final Walk walk = WALKS.get();
+        int[] output = new int[16];
+        int count = 0;
+        int depth = -1;
+        try {
+            for (int entryPoint : entryPoints) {
+                if (resolved.get(entryPoint)) {
+                    continue;
+                }
+                depth = 0;
+                walk.stack[0] = open(entryPoint, walk, 0);
+                walk.cursors[0] = offsets[entryPoint];
+                while (depth >= 0) {
+                    final int node = walk.stack[depth];
+                    if (walk.cursors[depth] < offsets[node + 1]) {
+                        final int child = targets[walk.cursors[depth]++];
+                        if (!resolved.get(child)) {
+                            depth++;
+                            walk.ensureDepth(depth);
+                            walk.stack[depth] = open(child, walk, depth);
+                            walk.cursors[depth] = offsets[child];
+                        }
+                    } else {
+                        walk.onStack.clear(node);
+                        resolved.set(node);
+                        if (count == output.length) {
+                            output = Arrays.copyOf(output, output.length * 2);
+                        }
+                        output[count++] = node;
+                        depth--;
+                    }
+                }
+            }
+        } finally {
+            for (; depth >= 0; depth--) {
+                walk.onStack.clear(walk.stack[depth]);
+            }
+        }
+        return Arrays.copyOf(output, count);
+    }
+
+    private int open(final int node,
+                     final Walk walk,
+                     final int depth) throws DependencyException {
+        if (missing.get(node)) {
+            throw DependencyException.nothingProvides(unprovided.getOrDefault(node, nodes[node]));
+        }
+        if (walk.onStack.get(node)) {
+            final List<Object> parents = new ArrayList<>(depth);
+            for (int i = 0; i < depth; i++) {
+                parents.add(nodes[walk.stack[i]]);
+            }
+            throw DependencyException.circularError(nodes[node], parents);
+        }
+        walk.onStack.set(node);
+        return node;
+    }
+
+    /**
+     * @param entryPoints The ids of the nodes to resolve.
+     * @return The ids of the entry points and all their dependencies, with every node after its dependencies.
+     * @throws DependencyException If a node is missing or a cycle is found.
+     */
+    public int[] resolveIds(final int... entryPoints) throws DependencyException {
+        return resolveIds(entryPoints, new BitSet());
+    }
+
+    /**
+     * @param entryPoints The nodes to resolve.
+     * @return The entry points and all their dependencies, in the same order {@link DependencyMapResolver} gives.
+     * @throws DependencyException If a node is missing or a cycle is found.
+     */
+    public List<Node> resolve(final Collection<Node> entryPoints) throws DependencyException {
+        if (entryPoints == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final int[] entryIds = new int[entryPoints.size()];
+        int index = 0;
+        for (Node entryPoint : entryPoints) {
+            if (entryPoint == null) {
+                throw DependencyException.cannotResolveDependenciesForNullResource();
+            }
+            final int id = getId(entryPoint);
+            if (id == -1) {
+                throw DependencyException.nothingProvides(entryPoint);
+            }
+            entryIds[index++] = id;
+        }
+        final int[] resolved = resolveIds(entryIds);
+        final List<Node> result = new ArrayList<>(resolved.length);
+        for (int id : resolved) {
+            result.add(getNode(id));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * The stack of a walk, kept per thread and reused, so a resolve only allocates its output. The arrays grow with
+     * the deepest walk, and the bits of the nodes on the stack are always cleared when a walk ends. It is shared with
+     * {@link DependencyGraphSnapshot}, whose walks are the same shape.
+     */
+    static class Walk {
+
+        final BitSet onStack = new BitSet();
+
+        int[] stack = new int[16];
+
+        int[] cursors = new int[16];
+
+        void ensureDepth(final int depth) {
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                cursors = Arrays.copyOf(cursors, cursors.length * 2);
+            }
+        }
+    }
+}
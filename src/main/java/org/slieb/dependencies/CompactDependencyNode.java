@@ -0,0 +1,163 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+
+/**
+ * A dependency node that stores its provides and requires as sorted ids of a {@link NamespaceTable} instead of sets of
+ * strings. A node costs two small int arrays, and the namespace strings are shared by every node of the table.
+ * <p>
+ * {@link #getProvides()} and {@link #getRequires()} are read only views that map the ids back to namespaces, so the
+ * node works anywhere a dependency node does. Both iterate in id order, which is the order the namespaces were first
+ * interned, and that is the order an {@link InternedDependencyGraph} resolves the requires in. Nodes are only equal
+ * to themselves.
+ *
+ * @param <R> The resource type.
+ */
+public final class CompactDependencyNode<R> implements DependencyNode<R> {
+
+    private final R resource;
+
+    private final NamespaceTable table;
+
+    private final int[] provides, requires;
+
+    private CompactDependencyNode(final R resource,
+                                  final NamespaceTable table,
+                                  final int[] provides,
+                                  final int[] requires) {
+        this.resource = resource;
+        this.table = table;
+        this.provides = provides;
+        this.requires = requires;
+    }
+
+    /**
+     * @param table    The table to intern the namespaces in.
+     * @param resource The resource.
+     * @param provides The namespaces the resource provides.
+     * @param requires The namespaces the resource requires.
+     * @param <R>      The resource type.
+     * @return A node of the resource.
+     */
+    public static <R> CompactDependencyNode<R> create(final NamespaceTable table,
+                                                      final R resource,
+                                                      final Collection<String> provides,
+                                                      final Collection<String> requires) {
+        return new CompactDependencyNode<>(resource, table, table.internAll(provides), table.internAll(requires));
+    }
+
+    @Override
+    public R getResource() {
+        return resource;
+    }
+
+    @Override
+    public Set<String> getRequires() {
+        return new NamespaceSet(requires);
+    }
+
+    @Override
+    public Set<String> getProvides() {
+        return new NamespaceSet(provides);
+    }
+
+    /**
+     * @return The table the namespace ids belong to.
+     */
+    public NamespaceTable getNamespaceTable() {
+        return table;
+    }
+
+    /**
+     * @return The number of provided namespaces.
+     */
+    public int getProvidesCount() {
+        return provides.length;
+    }
+
+    /**
+     * @param index An index between 0 and {@link #getProvidesCount()}.
+     * @return The id of the provided namespace at the index, in ascending order.
+     */
+    public int getProvidesId(final int index) {
+        return provides[index];
+    }
+
+    /**
+     * @return The number of required namespaces.
+     */
+    public int getRequiresCount() {
+        return requires.length;
+    }
+
+    /**
+     * @param index An index between 0 and {@link #getRequiresCount()}.
+     * @return The id of the required namespace at the index, in ascending order.
+     */
+    public int getRequiresId(final int index) {
+        return requires[index];
+    }
+
+    /**
+     * @param id A namespace id.
+     * @return True if the node provides the namespace.
+     */
+    public boolean providesId(final int id) {
+        return Arrays.binarySearch(provides, id) >= 0;
+    }
+
+    /**
+     * @param id A namespace id.
+     * @return True if the node requires the namespace.
+     */
+    public boolean requiresId(final int id) {
+        return Arrays.binarySearch(requires, id) >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompactDependencyNode{resource=%s, provides=%s, requires=%s}", resource, getProvides(),
+                             getRequires());
+    }
+
+    private class NamespaceSet extends AbstractSet<String> {
+
+        private final int[] ids;
+
+        private NamespaceSet(final int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean contains(final Object namespace) {
+            final int id = table.getId(namespace);
+            return id != -1 && Arrays.binarySearch(ids, id) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < ids.length;
+                }
+
+                @Override
+                public String next() {
+                    if (index == ids.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return table.getNamespace(ids[index++]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+
+/**
+ * An immutable {@link DependencyGraph} that is compiled once from a collection of nodes. It holds a hash index of
+ * namespace to provider, and the resolved requires of every node, so lookups never scan the node collection.
+ * <p>
+ * When more than one node provides a namespace, the first node in the collection's iteration order is the provider.
+ *
+ * @param <D> A extension of the dependency node.
+ */
+public class CompiledDependencyGraph<D extends DependencyNode> implements DependencyGraph<D> {
+
+    private final Collection<D> nodes;
+
+    private final Map<String, D> providers;
+
+    private final Map<D, List<D>> dependencies;
+
+    private final Map<D, String> unresolved;
+
+    private CompiledDependencyGraph(final Collection<D> nodes) {
+        this.nodes = Collections.unmodifiableCollection(nodes);
+        this.providers = new HashMap<>();
+        this.dependencies = new HashMap<>();
+        this.unresolved = new HashMap<>();
+        for (D node : nodes) {
+            for (String namespace : getProvides(node)) {
+                providers.putIfAbsent(namespace, node);
+            }
+        }
+        for (D node : nodes) {
+            if (!dependencies.containsKey(node) && !unresolved.containsKey(node)) {
+                final String missing = findUnprovided(node);
+                if (missing != null) {
+                    unresolved.put(node, missing);
+                } else {
+                    dependencies.put(node, Collections.unmodifiableList(lookupDependencies(node)));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param nodes A collection of dependency nodes.
+     * @param <D>   A extension of the dependency node.
+     * @return A compiled graph of the nodes.
+     */
+    public static <D extends DependencyNode> CompiledDependencyGraph<D> compile(final Collection<D> nodes) {
+        if (nodes == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        return new CompiledDependencyGraph<>(nodes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> getProvides(DependencyNode node) {
+        return node.getProvides();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> getRequires(DependencyNode node) {
+        return node.getRequires();
+    }
+
+    private String findUnprovided(D node) {
+        for (String namespace : getRequires(node)) {
+            if (!providers.containsKey(namespace)) {
+                return namespace;
+            }
+        }
+        return null;
+    }
+
+    private List<D> lookupDependencies(D node) {
+        final Set<String> requires = getRequires(node);
+        final List<D> result = new ArrayList<>(requires.size());
+        for (String namespace : requires) {
+            final D provider = providers.get(namespace);
+            if (provider == null) {
+                throw DependencyException.nothingProvides(namespace);
+            }
+            result.add(provider);
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<D> getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public boolean containsNode(final D node) {
+        return dependencies.containsKey(node) || unresolved.containsKey(node);
+    }
+
+    @Override
+    public D getProvider(final String namespace) {
+        return providers.get(namespace);
+    }
+
+    @Override
+    public List<D> getDependencies(final D node) throws DependencyException {
+        final List<D> resolved = dependencies.get(node);
+        if (resolved != null) {
+            return resolved;
+        }
+        final String missing = unresolved.get(node);
+        if (missing != null) {
+            throw DependencyException.nothingProvides(missing);
+        }
+        return lookupDependencies(node);
+    }
+}
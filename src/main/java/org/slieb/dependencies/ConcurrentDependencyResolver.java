@@ -0,0 +1,260 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable, thread-safe dependency resolver. Unlike {@link DependencyResolver} it does not accumulate results;
+ * every call resolves its entry points from scratch against a shared, read-only {@link DependencyGraph}, using its
+ * own scratch state. Any number of threads can resolve at the same time without taking a lock.
+ *
+ * @param <D> A extension of the dependency node.
+ */
+public class ConcurrentDependencyResolver<D extends DependencyNode<?>> {
+
+    private final DependencyGraph<D> dependencyGraph;
+
+    private final List<D> baseList;
+
+    private final DependencyListener listener;
+
+    private ConcurrentDependencyResolver(final DependencyGraph<D> dependencyGraph,
+                                         final List<D> baseList,
+                                         final DependencyListener listener) {
+        this.dependencyGraph = dependencyGraph;
+        this.baseList = baseList;
+        this.listener = listener;
+    }
+
+    /**
+     * @param dependencyGraph An immutable graph of dependency nodes.
+     * @param baseList        A baselist of files that need to be included.
+     */
+    public ConcurrentDependencyResolver(final DependencyGraph<D> dependencyGraph,
+                                        final List<D> baseList) {
+        this(dependencyGraph, baseList == null ? Collections.emptyList() :
+                Collections.unmodifiableList(new ArrayList<>(new LinkedHashSet<>(baseList))), DependencyListener.NONE);
+    }
+
+    /**
+     * @param dependencyGraph An immutable graph of dependency nodes.
+     */
+    public ConcurrentDependencyResolver(final DependencyGraph<D> dependencyGraph) {
+        this(dependencyGraph, null);
+    }
+
+    /**
+     * @param dependencyNodes A collection of dependency nodes.
+     */
+    public ConcurrentDependencyResolver(final Collection<D> dependencyNodes) {
+        this(CompiledDependencyGraph.compile(dependencyNodes));
+    }
+
+    /**
+     * @param listener A listener that is told about every resolve.
+     * @return A resolver over the same graph and base list that reports to the listener.
+     */
+    public ConcurrentDependencyResolver<D> withListener(final DependencyListener listener) {
+        return new ConcurrentDependencyResolver<>(dependencyGraph, baseList, listener);
+    }
+
+    public DependencyListener getListener() {
+        return listener;
+    }
+
+    public DependencyGraph<D> getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    public List<D> getBaseList() {
+        return baseList;
+    }
+
+    private D getProvider(final String namespace) throws DependencyException {
+        final D node = dependencyGraph.getProvider(namespace);
+        if (node == null) {
+            throw DependencyException.nothingProvides(namespace);
+        }
+        return node;
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return The base list followed by the providers of the namespaces and all their dependencies.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public List<D> resolveNamespaces(final Collection<String> namespaces) throws DependencyException {
+        if (namespaces == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final List<D> nodes = new ArrayList<>(namespaces.size());
+        for (String namespace : namespaces) {
+            nodes.add(getProvider(namespace));
+        }
+        return resolveNodes(nodes);
+    }
+
+    /**
+     * @param nodes The nodes to resolve.
+     * @return The base list followed by the nodes and all their dependencies.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public List<D> resolveNodes(final Collection<D> nodes) throws DependencyException {
+        if (nodes == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final long start = DependencyListener.start(listener);
+        final List<D> resolvedNodes = new ArrayList<>(baseList);
+        final DependencyWalker<D> walker =
+                new DependencyWalker<>(dependencyGraph::getDependencies, new HashSet<>(baseList));
+        try {
+            for (D node : nodes) {
+                if (node == null) {
+                    throw DependencyException.cannotResolveNull();
+                }
+                walker.walk(node, resolvedNodes);
+            }
+        } finally {
+            listener.resolved(walker.getNodesVisited(), walker.getEdgesFollowed());
+            DependencyListener.end(listener, DependencyListener.Phase.RESOLVE, start);
+        }
+        return Collections.unmodifiableList(resolvedNodes);
+    }
+
+    /**
+     * Resolves lazily. Each node is produced as soon as its position in the order is final, which is once all of its
+     * dependencies have been produced, and the resolved list is never held in memory. Resolution errors are thrown
+     * from the iterator once it reaches the failing node.
+     *
+     * @param namespaces The namespaces to resolve.
+     * @return An iterator over the same nodes, in the same order, as {@link #resolveNamespaces(Collection)}.
+     */
+    public Iterator<D> iterateNamespaces(final Collection<String> namespaces) {
+        if (namespaces == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final Iterator<String> iterator = namespaces.iterator();
+        return new ResolvingIterator(new Iterator<D>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public D next() {
+                return getProvider(iterator.next());
+            }
+        });
+    }
+
+    /**
+     * @param nodes The nodes to resolve.
+     * @return An iterator over the same nodes, in the same order, as {@link #resolveNodes(Collection)}.
+     * @see #iterateNamespaces(Collection)
+     */
+    public Iterator<D> iterateNodes(final Collection<D> nodes) {
+        if (nodes == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        return new ResolvingIterator(nodes.iterator());
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return A sequential stream over {@link #iterateNamespaces(Collection)}.
+     */
+    public Stream<D> streamNamespaces(final Collection<String> namespaces) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                iterateNamespaces(namespaces), Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+                                    false);
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @param consumer   Receives every node as soon as its position is final.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public void resolveNamespaces(final Collection<String> namespaces,
+                                  final Consumer<? super D> consumer) throws DependencyException {
+        iterateNamespaces(namespaces).forEachRemaining(consumer);
+    }
+
+    /**
+     * Reports the walk once it is exhausted or fails. The resolve phase only counts the time spent inside the
+     * iterator, not the time the caller spends between nodes.
+     */
+    private class ResolvingIterator implements Iterator<D> {
+
+        private final Iterator<D> base;
+
+        private final Iterator<D> entryPoints;
+
+        private final DependencyWalker<D> walker;
+
+        private D next;
+
+        private long nanos;
+
+        private boolean reported;
+
+        private ResolvingIterator(final Iterator<D> entryPoints) {
+            this.base = baseList.iterator();
+            this.entryPoints = entryPoints;
+            this.walker = new DependencyWalker<>(dependencyGraph::getDependencies, new HashSet<>(baseList));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                final long start = DependencyListener.start(listener);
+                try {
+                    next = advance();
+                } catch (RuntimeException exception) {
+                    report(start);
+                    throw exception;
+                }
+                if (next == null) {
+                    report(start);
+                } else if (listener != DependencyListener.NONE) {
+                    nanos += System.nanoTime() - start;
+                }
+            }
+            return next != null;
+        }
+
+        private void report(final long start) {
+            if (!reported) {
+                reported = true;
+                listener.resolved(walker.getNodesVisited(), walker.getEdgesFollowed());
+                DependencyListener.end(listener, DependencyListener.Phase.RESOLVE, start - nanos);
+            }
+        }
+
+        private D advance() {
+            if (base.hasNext()) {
+                return base.next();
+            }
+            D node = walker.next();
+            while (node == null && entryPoints.hasNext()) {
+                final D entryPoint = entryPoints.next();
+                if (entryPoint == null) {
+                    throw DependencyException.cannotResolveNull();
+                }
+                node = walker.push(entryPoint).next();
+            }
+            return node;
+        }
+
+        @Override
+        public D next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final D result = next;
+            next = null;
+            return result;
+        }
+    }
+}
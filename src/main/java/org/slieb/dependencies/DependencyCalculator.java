@@ -1,12 +1,13 @@
 package org.slieb.dependencies;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
 
 public class DependencyCalculator<R, D extends DependencyNode<R>> {
 
@@ -16,6 +17,8 @@ public class DependencyCalculator<R, D extends DependencyNode<R>> {
 
     protected final DependenciesHelper<D> dependenciesHelper;
 
+    protected DependencyListener listener = DependencyListener.NONE;
+
     public DependencyCalculator(Iterable<R> resources,
                                 DependencyParser<R, D> parser,
                                 DependenciesHelper<D> helper) {
@@ -30,23 +33,79 @@ public class DependencyCalculator<R, D extends DependencyNode<R>> {
     }
 
 
-    private Stream<R> resourceStream() {
-        if (resources instanceof Collection) {
-            return ((Collection<R>) resources).stream();
+    /**
+     * @param listener A listener that is told about parsing, index building and every resolver this calculator
+     *                 creates.
+     * @return A reference to the calculator.
+     */
+    public DependencyCalculator<R, D> withListener(DependencyListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    protected D parse(R resource) {
+        final D node;
+        try {
+            node = dependencyParser.parse(resource);
+        } catch (RuntimeException exception) {
+            listener.parseFailed(resource, exception);
+            throw exception;
+        }
+        listener.parsed(resource);
+        return node;
+    }
+
+    /**
+     * @param toParse The resources to parse, with the batch parser if there is one.
+     * @return A map of resource to dependency node, in iteration order.
+     */
+    protected Map<R, D> parseResources(Iterable<R> toParse) {
+        final long start = DependencyListener.start(listener);
+        final Map<R, D> parsed;
+        if (dependencyParser instanceof BatchDependencyParser) {
+            parsed = ((BatchDependencyParser<R, D>) dependencyParser).parseAll(toParse, listener::parseFailed);
+            parsed.keySet().forEach(listener::parsed);
         } else {
-            return StreamSupport.stream(resources.spliterator(), false);
+            parsed = new LinkedHashMap<>();
+            for (R resource : toParse) {
+                parsed.put(resource, parse(resource));
+            }
         }
+        DependencyListener.end(listener, DependencyListener.Phase.PARSE, start);
+        return parsed;
     }
 
     public Collection<D> getDependencyNodes() {
-        return resourceStream().map(dependencyParser::parse).collect(toSet());
+        return new HashSet<>(parseResources(resources).values());
+    }
+
+    /**
+     * @param dependencies The parsed nodes.
+     * @return A graph of the resolvable nodes, which is an {@link InternedDependencyGraph} when they are all
+     * {@link CompactDependencyNode}s of one {@link NamespaceTable}.
+     */
+    public DependencyGraph<D> getDependencyGraph(Collection<D> dependencies) {
+        final long start = DependencyListener.start(listener);
+        final DependencyGraph<D> graph =
+                InternedDependencyGraph.compileShared(dependenciesHelper.getResolvableSet(dependencies));
+        DependencyListener.end(listener, DependencyListener.Phase.INDEX, start);
+        return graph;
     }
 
     public DependencyResolver<D> getDependencyResolver() {
         Collection<D> dependencies = getDependencyNodes();
         return new DependencyResolver<>(
-                dependenciesHelper.getResolvableSet(dependencies),
-                dependenciesHelper.getBaseList(dependencies));
+                getDependencyGraph(dependencies),
+                dependenciesHelper.getBaseList(dependencies))
+                .withListener(listener);
+    }
+
+    public ConcurrentDependencyResolver<D> getConcurrentDependencyResolver() {
+        Collection<D> dependencies = getDependencyNodes();
+        return new ConcurrentDependencyResolver<>(
+                getDependencyGraph(dependencies),
+                dependenciesHelper.getBaseList(dependencies))
+                .withListener(listener);
     }
 
     public List<D> getDependenciesFor(Set<String> namespaces) {
@@ -60,7 +119,7 @@ public class DependencyCalculator<R, D extends DependencyNode<R>> {
             throw DependencyException.cannotResolveNull();
         }
         return getDependencyResolver()
-                .resolveNode(dependencyParser.parse(resource))
+                .resolveNode(parse(resource))
                 .resolve();
     }
 
@@ -68,6 +127,23 @@ public class DependencyCalculator<R, D extends DependencyNode<R>> {
         return getDependenciesFor(immutableNamespaces(namespaces));
     }
 
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return A lazy stream of the dependencies, in the order {@link #getDependenciesFor(Set)} gives.
+     * @see ConcurrentDependencyResolver#iterateNamespaces(Collection)
+     */
+    public Stream<D> streamDependenciesFor(Set<String> namespaces) {
+        return getConcurrentDependencyResolver().streamNamespaces(namespaces);
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return A lazy stream of the resources, in the order {@link #getResourcesFor(Set)} gives.
+     */
+    public Stream<R> streamResourcesFor(Set<String> namespaces) {
+        return streamDependenciesFor(namespaces).map(DependencyNode::getResource);
+    }
+
     public List<R> getResourcesFor(Set<String> namespaces) {
         return getDependenciesFor(namespaces)
                 .stream()
@@ -87,11 +163,73 @@ public class DependencyCalculator<R, D extends DependencyNode<R>> {
         return getResourcesFor(immutableNamespaces(namespaces));
     }
 
+    /**
+     * Resolves many bundles with one parse, one index build and shared traversal work: the closure of a namespace is
+     * only walked once, however many bundles include it.
+     *
+     * @param bundles A map of bundle name to the namespaces of the bundle.
+     * @return A map of bundle name to the ordered dependencies of the bundle, in the iteration order of the bundles.
+     */
+    public Map<String, List<D>> getDependenciesFor(Map<String, Set<String>> bundles) {
+        return getDependenciesFor(bundles, Runnable::run);
+    }
+
+    /**
+     * Builds the index a batch resolve shares, see {@link #getDependenciesFor(Map, Executor)}. The index reads the
+     * whole graph once and then looks providers up in it while the bundles resolve, so the graph must not change from
+     * the moment the index is built until the batch completes. The graph of this calculator never changes;
+     * subclasses whose {@link #getDependencyGraph(Collection)} returns a graph that can change should override this
+     * and index a snapshot of it.
+     *
+     * @return An index over the graph and base list of {@link #getConcurrentDependencyResolver()}.
+     */
+    protected ReachabilityIndex<D> getReachabilityIndex() {
+        return new ReachabilityIndex<>(getConcurrentDependencyResolver());
+    }
+
+    /**
+     * @param bundles  A map of bundle name to the namespaces of the bundle.
+     * @param executor The executor the bundles are resolved on.
+     * @return A map of bundle name to the ordered dependencies of the bundle, in the iteration order of the bundles.
+     * @see #getReachabilityIndex()
+     */
+    public Map<String, List<D>> getDependenciesFor(Map<String, Set<String>> bundles,
+                                                   Executor executor) {
+        final ReachabilityIndex<D> index = getReachabilityIndex();
+        final Map<String, CompletableFuture<List<D>>> futures = new LinkedHashMap<>();
+        bundles.forEach((name, namespaces) -> futures.put(
+                name, CompletableFuture.supplyAsync(() -> index.resolveNamespaces(namespaces), executor)));
+        final Map<String, List<D>> result = new LinkedHashMap<>();
+        futures.forEach((name, future) -> {
+            try {
+                result.put(name, future.join());
+            } catch (CompletionException exception) {
+                if (exception.getCause() instanceof DependencyException) {
+                    throw (DependencyException) exception.getCause();
+                }
+                throw exception;
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    public Map<String, List<R>> getResourcesFor(Map<String, Set<String>> bundles) {
+        return getResourcesFor(bundles, Runnable::run);
+    }
+
+    public Map<String, List<R>> getResourcesFor(Map<String, Set<String>> bundles,
+                                                Executor executor) {
+        final Map<String, List<R>> result = new LinkedHashMap<>();
+        getDependenciesFor(bundles, executor).forEach((name, dependencies) -> result.put(
+                name, dependencies.stream().map(DependencyNode::getResource).collect(toList())));
+        return Collections.unmodifiableMap(result);
+    }
+
     private Set<String> immutableNamespaces(String... namespaces) {
         return Collections.unmodifiableSet(Arrays.stream(namespaces).collect(Collectors.toSet()));
     }
 
-    private static class DefaultHelper<D extends DependencyNode> implements DependenciesHelper<D> {
+    static class DefaultHelper<D extends DependencyNode> implements DependenciesHelper<D> {
 
     }
 }
@@ -0,0 +1,172 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+
+/**
+ * Finds every circular dependency of a dependency map in one pass, instead of failing on the first cycle a resolve
+ * happens to walk into.
+ * <p>
+ * The strongly connected components are found with an iterative form of Tarjan's algorithm over a
+ * {@link CompactDependencyGraph}. Every component with more than one node, or with a node that depends on itself, is a
+ * cycle. For each of those one concrete cycle is reported: a breadth first search inside the component from its first
+ * node back to that node, which gives a shortest cycle through it. The whole analysis is O(V + E).
+ *
+ * @param <Node> The node type.
+ */
+public class DependencyCycles<Node> {
+
+    private final List<Set<Node>> components;
+
+    private final List<List<Node>> cycles;
+
+    private DependencyCycles(final List<Set<Node>> components,
+                             final List<List<Node>> cycles) {
+        this.components = Collections.unmodifiableList(components);
+        this.cycles = Collections.unmodifiableList(cycles);
+    }
+
+    /**
+     * @param dependencyMap A map of node to the nodes it depends on, such as one from
+     *                      {@link DependencyUtils#getDependencyMap(Collection)}.
+     * @param <Node>        The node type.
+     * @return The cycles of the map.
+     */
+    public static <Node> DependencyCycles<Node> analyze(final Map<Node, ? extends Collection<Node>> dependencyMap) {
+        final CompactDependencyGraph<Node> graph = CompactDependencyGraph.fromDependencyMap(dependencyMap);
+        final int size = graph.size();
+        final int[] index = new int[size], lowLink = new int[size], component = new int[size];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        final BitSet onStack = new BitSet(size);
+        final int[] stack = new int[size], callStack = new int[size], cursors = new int[size];
+        int stackSize = 0, counter = 0, componentCount = 0;
+        final List<Set<Node>> components = new ArrayList<>();
+        final List<List<Node>> cycles = new ArrayList<>();
+
+        for (int root = 0; root < size; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            callStack[0] = root;
+            cursors[0] = 0;
+            index[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack.set(root);
+            while (depth >= 0) {
+                final int node = callStack[depth];
+                if (cursors[depth] < graph.getDependencyCount(node)) {
+                    final int child = graph.getDependency(node, cursors[depth]++);
+                    if (index[child] == -1) {
+                        index[child] = lowLink[child] = counter++;
+                        stack[stackSize++] = child;
+                        onStack.set(child);
+                        depth++;
+                        callStack[depth] = child;
+                        cursors[depth] = 0;
+                    } else if (onStack.get(child)) {
+                        lowLink[node] = Math.min(lowLink[node], index[child]);
+                    }
+                    continue;
+                }
+                if (lowLink[node] == index[node]) {
+                    final int first = stackSize;
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack.clear(member);
+                        component[member] = componentCount;
+                    } while (member != node);
+                    if (first - stackSize > 1 || dependsOnItself(graph, node)) {
+                        final Set<Node> members = new LinkedHashSet<>();
+                        for (int i = first - 1; i >= stackSize; i--) {
+                            members.add(graph.getNode(stack[i]));
+                        }
+                        components.add(Collections.unmodifiableSet(members));
+                        cycles.add(findCycle(graph, component, node));
+                    }
+                    componentCount++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    final int parent = callStack[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+            }
+        }
+        return new DependencyCycles<>(components, cycles);
+    }
+
+    private static boolean dependsOnItself(final CompactDependencyGraph<?> graph,
+                                           final int node) {
+        for (int i = 0; i < graph.getDependencyCount(node); i++) {
+            if (graph.getDependency(node, i) == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A breadth first search from the start node, restricted to its component, back to the start node.
+     */
+    private static <Node> List<Node> findCycle(final CompactDependencyGraph<Node> graph,
+                                               final int[] component,
+                                               final int start) {
+        final Map<Integer, Integer> previous = new HashMap<>();
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        int last = -1;
+        while (last == -1) {
+            final int node = queue.poll();
+            for (int i = 0; i < graph.getDependencyCount(node); i++) {
+                final int child = graph.getDependency(node, i);
+                if (child == start) {
+                    last = node;
+                    break;
+                }
+                if (component[child] == component[start] && !previous.containsKey(child)) {
+                    previous.put(child, node);
+                    queue.add(child);
+                }
+            }
+        }
+        final LinkedList<Node> path = new LinkedList<>();
+        for (int node = last; node != start; node = previous.get(node)) {
+            path.addFirst(graph.getNode(node));
+        }
+        path.addFirst(graph.getNode(start));
+        return Collections.unmodifiableList(new ArrayList<>(path));
+    }
+
+    /**
+     * @return True if the map has at least one cycle.
+     */
+    public boolean hasCycles() {
+        return !cycles.isEmpty();
+    }
+
+    /**
+     * @return Every strongly connected component that contains a cycle.
+     */
+    public List<Set<Node>> getComponents() {
+        return components;
+    }
+
+    /**
+     * @return One cycle for every component, in the same order as {@link #getComponents()}. Every node of a cycle
+     * depends on the next one, and the last node depends on the first.
+     */
+    public List<List<Node>> getCycles() {
+        return cycles;
+    }
+
+    /**
+     * @throws DependencyException If the map has any cycle, listing all of them.
+     */
+    public void validate() throws DependencyException {
+        if (hasCycles()) {
+            throw DependencyException.circularErrors(cycles);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package org.slieb.dependencies;
 
 
-import java.util.Collection;
+import java.util.*;
 
 public class DependencyException extends RuntimeException {
 
+    private transient Map<Object, Throwable> parseFailures;
+
     public DependencyException(String s) {
         super(s);
     }
@@ -14,6 +16,11 @@ public class DependencyException extends RuntimeException {
         super(stringValue, exception);
     }
 
+    public DependencyException(final String stringValue,
+                               final Throwable throwable) {
+        super(stringValue, throwable);
+    }
+
     public static DependencyException cannotResolveDependenciesForNullResource() {
         return new DependencyException("Cannot resolve dependencies for null resource");
     }
@@ -29,6 +36,19 @@ public class DependencyException extends RuntimeException {
         return new DependencyException(builder.toString());
     }
 
+    public static <N> DependencyException circularErrors(final Collection<? extends List<N>> cycles) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Found %d circular dependencies.\n", cycles.size()));
+        for (List<N> cycle : cycles) {
+            builder.append("    + ");
+            for (N node : cycle) {
+                builder.append(node).append(" -> ");
+            }
+            builder.append(cycle.get(0)).append("\n");
+        }
+        return new DependencyException(builder.toString());
+    }
+
     public static <N> DependencyException nothingProvides(N node) {
         return new DependencyException(String.format("nothing provides %s", node.toString()));
     }
@@ -37,6 +57,10 @@ public class DependencyException extends RuntimeException {
         return new DependencyException("Cannot resolve module name of null.");
     }
 
+    public static <N> DependencyException notInGraph(N node) {
+        return new DependencyException(String.format("%s is not part of the graph", node));
+    }
+
     public static DependencyException cannotResolveModuleWithNullNamespace(String moduleName) {
         return new DependencyException(String.format("Cannot resolve namespace of null in module '%s'", moduleName));
     }
@@ -53,4 +77,32 @@ public class DependencyException extends RuntimeException {
                                                            DependencyException dependencyException) {
         return new DependencyException(String.format("Cannot resolve %s", node), dependencyException);
     }
+
+    public static <R> DependencyException parseFailures(final Map<R, ? extends Throwable> failures) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Failed to parse %d resource(s).\n", failures.size()));
+        failures.forEach((resource, throwable) -> builder.append("    + ").append(resource).append(": ")
+                .append(throwable.getMessage()).append("\n"));
+        final DependencyException exception = new DependencyException(builder.toString());
+        failures.values().forEach(exception::addSuppressed);
+        exception.parseFailures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        return exception;
+    }
+
+    /**
+     * @return The resources that failed to parse and their failures, if this exception was made by
+     * {@link #parseFailures(Map)}, or an empty map.
+     */
+    public Map<Object, Throwable> getParseFailures() {
+        return parseFailures == null ? Collections.emptyMap() : parseFailures;
+    }
+
+    public static DependencyException interrupted(InterruptedException interruptedException) {
+        return new DependencyException("Interrupted while resolving dependencies.", interruptedException);
+    }
+
+    public static DependencyException invalidSnapshot(Object file,
+                                                      String reason) {
+        return new DependencyException(String.format("Cannot load snapshot %s: %s", file, reason));
+    }
 }
@@ -0,0 +1,47 @@
+package org.slieb.dependencies;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A view of a set of dependency nodes that can answer provider and dependency lookups without scanning the nodes.
+ *
+ * @param <D> A extension of the dependency node.
+ */
+public interface DependencyGraph<D extends DependencyNode> {
+
+    /**
+     * @return All the nodes in the graph.
+     */
+    Collection<D> getNodes();
+
+    /**
+     * @param node A dependency node.
+     * @return True if the node is part of this graph.
+     */
+    boolean containsNode(D node);
+
+    /**
+     * @param namespace A namespace.
+     * @return The node that provides the namespace, or null if nothing provides it.
+     */
+    D getProvider(String namespace);
+
+    /**
+     * @param node A dependency node, which does not need to be part of the graph.
+     * @return The providers of the node's requires, in the order that the node declares them.
+     * @throws DependencyException If one of the node's requires is not provided.
+     */
+    List<D> getDependencies(D node) throws DependencyException;
+
+    /**
+     * @return A live, read only view of the graph as a map of node to the providers of its requires, for code that
+     * works on dependency maps such as {@link DependencyMapResolver}. Looking up a node with a require that nothing
+     * provides fails.
+     */
+    default Map<D, Set<D>> asDependencyMap() {
+        return new DependencyGraphMap<>(this);
+    }
+}
@@ -0,0 +1,64 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+
+/**
+ * A map view of a {@link DependencyGraph}, see {@link DependencyGraph#asDependencyMap()}.
+ *
+ * @param <D> A extension of the dependency node.
+ */
+final class DependencyGraphMap<D extends DependencyNode> extends AbstractMap<D, Set<D>> {
+
+    private final DependencyGraph<D> dependencyGraph;
+
+    DependencyGraphMap(final DependencyGraph<D> dependencyGraph) {
+        this.dependencyGraph = dependencyGraph;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean containsKey(final Object key) {
+        return key instanceof DependencyNode && dependencyGraph.containsNode((D) key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<D> get(final Object key) {
+        if (!containsKey(key)) {
+            return null;
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(dependencyGraph.getDependencies((D) key)));
+    }
+
+    @Override
+    public int size() {
+        return dependencyGraph.getNodes().size();
+    }
+
+    @Override
+    public Set<Entry<D, Set<D>>> entrySet() {
+        return new AbstractSet<Entry<D, Set<D>>>() {
+            @Override
+            public Iterator<Entry<D, Set<D>>> iterator() {
+                final Iterator<D> nodes = dependencyGraph.getNodes().iterator();
+                return new Iterator<Entry<D, Set<D>>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return nodes.hasNext();
+                    }
+
+                    @Override
+                    public Entry<D, Set<D>> next() {
+                        final D node = nodes.next();
+                        return new SimpleImmutableEntry<>(node, get(node));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return DependencyGraphMap.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,582 @@
+package org.slieb.dependencies;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A compiled dependency graph stored in a versioned binary file, so that a process can start resolving without
+ * parsing every resource first.
+ * <p>
+ * The file holds a namespace table sorted by its UTF-8 bytes, a provider index from namespace to node, the dependencies
+ * of every node in compressed sparse row form, the base list, the provides and requires of every node, and for every
+ * node a resource key and the fingerprint of the resource when it was parsed. Nodes outside the resolvable set are
+ * kept for their fingerprints but provide nothing. {@link #open(Path)} maps the file with {@link FileChannel#map} and
+ * reads every table straight from the mapped buffer: namespaces are found by a binary search that compares the mapped
+ * bytes, and only the strings that are returned are decoded.
+ * <p>
+ * A snapshot does not know when its resources change. Check it with
+ * {@link #isCurrent(Collection, Function, ResourceChangeDetector)} before trusting it, and write a new one when it is
+ * stale.
+ */
+public final class DependencyGraphSnapshot {
+
+    private static final int MAGIC = 0x44475350;
+
+    /**
+     * The version of the file format this class reads and writes.
+     */
+    public static final int VERSION = 2;
+
+    private static final int HEADER_INTS = 8;
+
+    private static final int NONE = -1;
+
+    private static final ThreadLocal<BitSet> RESOLVED = ThreadLocal.withInitial(BitSet::new);
+
+    private final ByteBuffer buffer;
+
+    private final int nodeCount, namespaceCount;
+
+    private final IntBuffer namespaceOffsets, providers, offsets, targets, unprovided, baseIds,
+            providesOffsets, provides, requiresOffsets, requires, keyOffsets, fingerprintOffsets;
+
+    private final int namespaceBytes, keyBytes, fingerprintBytes;
+
+    private DependencyGraphSnapshot(final Path file,
+                                    final ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC) {
+            throw DependencyException.invalidSnapshot(file, "not a dependency graph snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw DependencyException.invalidSnapshot(file, String.format("unsupported version %d", buffer.getInt(4)));
+        }
+        this.nodeCount = buffer.getInt(8);
+        this.namespaceCount = buffer.getInt(12);
+        final int edgeCount = buffer.getInt(16), providesCount = buffer.getInt(20), requiresCount = buffer.getInt(24);
+        final int baseCount = buffer.getInt(28);
+        try {
+            int position = HEADER_INTS * 4;
+            namespaceOffsets = ints(position, namespaceCount + 1);
+            position += (namespaceCount + 1) * 4;
+            providers = ints(position, namespaceCount);
+            position += namespaceCount * 4;
+            offsets = ints(position, nodeCount + 1);
+            position += (nodeCount + 1) * 4;
+            targets = ints(position, edgeCount);
+            position += edgeCount * 4;
+            unprovided = ints(position, nodeCount);
+            position += nodeCount * 4;
+            baseIds = ints(position, baseCount);
+            position += baseCount * 4;
+            providesOffsets = ints(position, nodeCount + 1);
+            position += (nodeCount + 1) * 4;
+            provides = ints(position, providesCount);
+            position += providesCount * 4;
+            requiresOffsets = ints(position, nodeCount + 1);
+            position += (nodeCount + 1) * 4;
+            requires = ints(position, requiresCount);
+            position += requiresCount * 4;
+            keyOffsets = ints(position, nodeCount + 1);
+            position += (nodeCount + 1) * 4;
+            fingerprintOffsets = ints(position, nodeCount + 1);
+            position += (nodeCount + 1) * 4;
+            namespaceBytes = position;
+            keyBytes = namespaceBytes + namespaceOffsets.get(namespaceCount);
+            fingerprintBytes = keyBytes + keyOffsets.get(nodeCount);
+            if (fingerprintBytes + fingerprintOffsets.get(nodeCount) != buffer.capacity()) {
+                throw DependencyException.invalidSnapshot(file, "unexpected file size");
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException exception) {
+            throw DependencyException.invalidSnapshot(file, "truncated file");
+        }
+    }
+
+    private IntBuffer ints(final int position,
+                           final int count) {
+        final ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.limit(position + count * 4);
+        return view.slice().asIntBuffer();
+    }
+
+    /**
+     * Maps a snapshot file into memory.
+     *
+     * @param file The snapshot file.
+     * @return The snapshot.
+     * @throws IOException         If the file cannot be read.
+     * @throws DependencyException If the file is not a snapshot of a supported version.
+     */
+    public static DependencyGraphSnapshot open(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new DependencyGraphSnapshot(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a snapshot of the nodes, all of them resolvable and without a base list.
+     *
+     * @param file           The snapshot file.
+     * @param nodes          The dependency nodes.
+     * @param resourceKeys   Gives every resource a unique key to find it again when the snapshot is loaded.
+     * @param changeDetector Fingerprints the resources, to detect stale snapshots.
+     * @param <R>            The resource type.
+     * @param <D>            A extension of the dependency node.
+     * @throws IOException If the file cannot be written.
+     */
+    public static <R, D extends DependencyNode<R>> void write(final Path file,
+                                                              final Collection<D> nodes,
+                                                              final Function<R, String> resourceKeys,
+                                                              final ResourceChangeDetector<R> changeDetector)
+            throws IOException {
+        write(file, nodes, new DependencyCalculator.DefaultHelper<>(), resourceKeys, changeDetector);
+    }
+
+    /**
+     * Writes a snapshot of the nodes. The file is written next to its target and moved into place, so a reader never
+     * sees a partial snapshot.
+     *
+     * @param file           The snapshot file.
+     * @param nodes          The dependency nodes.
+     * @param helper         Gives the resolvable set and the base list of the nodes.
+     * @param resourceKeys   Gives every resource a unique key to find it again when the snapshot is loaded.
+     * @param changeDetector Fingerprints the resources, to detect stale snapshots.
+     * @param <R>            The resource type.
+     * @param <D>            A extension of the dependency node.
+     * @throws IOException If the file cannot be written.
+     */
+    public static <R, D extends DependencyNode<R>> void write(final Path file,
+                                                              final Collection<D> nodes,
+                                                              final DependenciesHelper<D> helper,
+                                                              final Function<R, String> resourceKeys,
+                                                              final ResourceChangeDetector<R> changeDetector)
+            throws IOException {
+        final Set<D> resolvable = helper.getResolvableSet(nodes);
+        final List<D> graphNodes = new ArrayList<>(resolvable.size());
+        for (D node : nodes) {
+            if (resolvable.contains(node)) {
+                graphNodes.add(node);
+            }
+        }
+        final CompiledDependencyGraph<D> graph = CompiledDependencyGraph.compile(graphNodes);
+        final CompactDependencyGraph<D> compact = CompactDependencyGraph.fromDependencyGraph(graph);
+        final int graphCount = compact.size();
+
+        // the graph's nodes keep their compact ids, the other nodes and base nodes follow them without edges.
+        final Map<D, Integer> ids = new LinkedHashMap<>();
+        for (int id = 0; id < graphCount; id++) {
+            ids.put(compact.getNode(id), id);
+        }
+        final List<D> baseList = helper.getBaseList(nodes);
+        for (Collection<D> extra : Arrays.asList(nodes, baseList)) {
+            for (D node : extra) {
+                ids.putIfAbsent(node, ids.size());
+            }
+        }
+        final List<D> ordered = new ArrayList<>(ids.keySet());
+        final int nodeCount = ordered.size();
+        final Set<Integer> baseIds = new LinkedHashSet<>();
+        for (D node : baseList) {
+            baseIds.add(ids.get(node));
+        }
+
+        final Set<String> namespaceSet = new HashSet<>();
+        for (D node : ordered) {
+            namespaceSet.addAll(node.getProvides());
+            namespaceSet.addAll(node.getRequires());
+        }
+        final List<byte[]> namespaceData = new ArrayList<>(namespaceSet.size());
+        for (String namespace : namespaceSet) {
+            namespaceData.add(namespace.getBytes(StandardCharsets.UTF_8));
+        }
+        namespaceData.sort(DependencyGraphSnapshot::compare);
+        final List<String> namespaces = new ArrayList<>(namespaceData.size());
+        final Map<String, Integer> namespaceIds = new HashMap<>(namespaceData.size() * 2);
+        for (byte[] bytes : namespaceData) {
+            final String namespace = new String(bytes, StandardCharsets.UTF_8);
+            namespaceIds.put(namespace, namespaces.size());
+            namespaces.add(namespace);
+        }
+
+        final int[] providerIds = new int[namespaces.size()];
+        for (int i = 0; i < providerIds.length; i++) {
+            final D provider = graph.getProvider(namespaces.get(i));
+            providerIds[i] = provider == null ? NONE : compact.getId(provider);
+        }
+        final int[] unprovidedIds = new int[nodeCount];
+        int providesCount = 0, requiresCount = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            final D node = ordered.get(id);
+            unprovidedIds[id] = NONE;
+            if (id < graphCount && compact.isMissing(id)) {
+                for (String namespace : node.getRequires()) {
+                    if (graph.getProvider(namespace) == null) {
+                        unprovidedIds[id] = namespaceIds.get(namespace);
+                        break;
+                    }
+                }
+            }
+            providesCount += node.getProvides().size();
+            requiresCount += node.getRequires().size();
+        }
+
+        final Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(),
+                                                    ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                final List<byte[]> keyData = new ArrayList<>(nodeCount), fingerprintData = new ArrayList<>(nodeCount);
+                for (int id = 0; id < nodeCount; id++) {
+                    final R resource = ordered.get(id).getResource();
+                    keyData.add(resourceKeys.apply(resource).getBytes(StandardCharsets.UTF_8));
+                    fingerprintData.add(encodeFingerprint(changeDetector.getFingerprint(resource)));
+                }
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(nodeCount);
+                out.writeInt(namespaces.size());
+                out.writeInt(compact.edgeCount());
+                out.writeInt(providesCount);
+                out.writeInt(requiresCount);
+                out.writeInt(baseIds.size());
+                writeOffsets(out, namespaceData);
+                for (int providerId : providerIds) {
+                    out.writeInt(providerId);
+                }
+                int edge = 0;
+                for (int id = 0; id < nodeCount; id++) {
+                    out.writeInt(edge);
+                    edge += id < graphCount ? compact.getDependencyCount(id) : 0;
+                }
+                out.writeInt(edge);
+                for (int id = 0; id < graphCount; id++) {
+                    for (int index = 0; index < compact.getDependencyCount(id); index++) {
+                        out.writeInt(compact.getDependency(id, index));
+                    }
+                }
+                for (int unprovidedId : unprovidedIds) {
+                    out.writeInt(unprovidedId);
+                }
+                for (int baseId : baseIds) {
+                    out.writeInt(baseId);
+                }
+                writeNamespaces(out, ordered, namespaceIds, DependencyNode::getProvides);
+                writeNamespaces(out, ordered, namespaceIds, DependencyNode::getRequires);
+                writeOffsets(out, keyData);
+                writeOffsets(out, fingerprintData);
+                for (List<byte[]> data : Arrays.asList(namespaceData, keyData, fingerprintData)) {
+                    for (byte[] bytes : data) {
+                        out.write(bytes);
+                    }
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeOffsets(final DataOutputStream out,
+                                     final List<byte[]> data) throws IOException {
+        int offset = 0;
+        out.writeInt(offset);
+        for (byte[] bytes : data) {
+            offset += bytes.length;
+            out.writeInt(offset);
+        }
+    }
+
+    private static <D extends DependencyNode<?>> void writeNamespaces(
+            final DataOutputStream out,
+            final List<D> nodes,
+            final Map<String, Integer> namespaceIds,
+            final Function<D, Set<String>> namespaces) throws IOException {
+        int offset = 0;
+        for (D node : nodes) {
+            out.writeInt(offset);
+            offset += namespaces.apply(node).size();
+        }
+        out.writeInt(offset);
+        for (D node : nodes) {
+            for (String namespace : namespaces.apply(node)) {
+                out.writeInt(namespaceIds.get(namespace));
+            }
+        }
+    }
+
+    /**
+     * Fingerprints are stored as bytes. Byte buffers and arrays are stored as they are, anything else by its string
+     * form, so a fingerprint type must have a stable {@code toString} to be used with snapshots.
+     */
+    static byte[] encodeFingerprint(final Object fingerprint) {
+        if (fingerprint instanceof ByteBuffer) {
+            final ByteBuffer value = ((ByteBuffer) fingerprint).duplicate();
+            final byte[] bytes = new byte[value.remaining()];
+            value.get(bytes);
+            return bytes;
+        }
+        if (fingerprint instanceof byte[]) {
+            return (byte[]) fingerprint;
+        }
+        return String.valueOf(fingerprint).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] bytes(final int base,
+                         final IntBuffer offsetTable,
+                         final int index) {
+        final int start = offsetTable.get(index), end = offsetTable.get(index + 1);
+        final byte[] bytes = new byte[end - start];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(base + start);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private String string(final int base,
+                          final IntBuffer offsetTable,
+                          final int index) {
+        return new String(bytes(base, offsetTable, index), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The number of nodes in the snapshot.
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * @param id A node id.
+     * @return The key of the node's resource.
+     */
+    public String getResourceKey(final int id) {
+        return string(keyBytes, keyOffsets, id);
+    }
+
+    /**
+     * @param id A node id.
+     * @return The namespaces the node provides.
+     */
+    public Set<String> getProvides(final int id) {
+        return namespaces(providesOffsets, provides, id);
+    }
+
+    /**
+     * @param id A node id.
+     * @return The namespaces the node requires.
+     */
+    public Set<String> getRequires(final int id) {
+        return namespaces(requiresOffsets, requires, id);
+    }
+
+    private Set<String> namespaces(final IntBuffer offsetTable,
+                                   final IntBuffer namespaceIds,
+                                   final int id) {
+        final Set<String> result = new LinkedHashSet<>();
+        for (int i = offsetTable.get(id); i < offsetTable.get(id + 1); i++) {
+            result.add(string(namespaceBytes, namespaceOffsets, namespaceIds.get(i)));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Compares bytes as unsigned values, which for UTF-8 is the order of the code points.
+     */
+    private static int compare(final byte[] left,
+                               final byte[] right) {
+        final int common = Math.min(left.length, right.length);
+        for (int i = 0; i < common; i++) {
+            final int comparison = (left[i] & 0xff) - (right[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return left.length - right.length;
+    }
+
+    private int compareNamespace(final int id,
+                                 final byte[] namespace) {
+        final int start = namespaceOffsets.get(id), length = namespaceOffsets.get(id + 1) - start;
+        final int common = Math.min(length, namespace.length);
+        for (int i = 0; i < common; i++) {
+            final int comparison = (buffer.get(namespaceBytes + start + i) & 0xff) - (namespace[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return length - namespace.length;
+    }
+
+    private int getNamespaceId(final String namespace) {
+        final byte[] bytes = namespace.getBytes(StandardCharsets.UTF_8);
+        int low = 0, high = namespaceCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = compareNamespace(middle, bytes);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @param namespace A namespace.
+     * @return The id of the node that provides the namespace, or -1 if nothing does.
+     */
+    public int getProvider(final String namespace) {
+        final int namespaceId = getNamespaceId(namespace);
+        return namespaceId == NONE ? NONE : providers.get(namespaceId);
+    }
+
+    /**
+     * @param resources      The current resources.
+     * @param resourceKeys   The key function the snapshot was written with.
+     * @param changeDetector The change detector the snapshot was written with.
+     * @param <R>            The resource type.
+     * @return True if the snapshot holds exactly these resources and none of them changed since it was written.
+     */
+    public <R> boolean isCurrent(final Collection<R> resources,
+                                 final Function<R, String> resourceKeys,
+                                 final ResourceChangeDetector<R> changeDetector) {
+        final Map<String, Integer> ids = new HashMap<>(nodeCount * 2);
+        for (int id = 0; id < nodeCount; id++) {
+            ids.put(getResourceKey(id), id);
+        }
+        if (ids.size() != resources.size()) {
+            return false;
+        }
+        for (R resource : resources) {
+            final Integer id = ids.get(resourceKeys.apply(resource));
+            if (id == null || !Arrays.equals(bytes(fingerprintBytes, fingerprintOffsets, id),
+                                             encodeFingerprint(changeDetector.getFingerprint(resource)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return The resource keys of the base list followed by the providers of the namespaces and all their
+     * dependencies, in the same order a {@link DependencyResolver} over the snapshotted nodes gives.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public List<String> resolveNamespaces(final Collection<String> namespaces) throws DependencyException {
+        if (namespaces == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final CompactDependencyGraph.Walk walk = CompactDependencyGraph.WALKS.get();
+        final BitSet resolved = RESOLVED.get();
+        int[] output = new int[16];
+        int count = 0;
+        int depth = -1;
+        try {
+            for (int i = 0; i < baseIds.limit(); i++) {
+                if (count == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                resolved.set(baseIds.get(i));
+                output[count++] = baseIds.get(i);
+            }
+            for (String namespace : namespaces) {
+                if (namespace == null) {
+                    throw DependencyException.cannotResolveNull();
+                }
+                final int entryPoint = getProvider(namespace);
+                if (entryPoint == NONE) {
+                    throw DependencyException.nothingProvides(namespace);
+                }
+                if (resolved.get(entryPoint)) {
+                    continue;
+                }
+                depth = 0;
+                walk.stack[0] = open(entryPoint, walk, 0);
+                walk.cursors[0] = offsets.get(entryPoint);
+                while (depth >= 0) {
+                    final int node = walk.stack[depth];
+                    if (walk.cursors[depth] < offsets.get(node + 1)) {
+                        final int child = targets.get(walk.cursors[depth]++);
+                        if (!resolved.get(child)) {
+                            depth++;
+                            walk.ensureDepth(depth);
+                            walk.stack[depth] = open(child, walk, depth);
+                            walk.cursors[depth] = offsets.get(child);
+                        }
+                    } else {
+                        walk.onStack.clear(node);
+                        resolved.set(node);
+                        if (count == output.length) {
+                            output = Arrays.copyOf(output, output.length * 2);
+                        }
+                        output[count++] = node;
+                        depth--;
+                    }
+                }
+            }
+        } finally {
+            for (; depth >= 0; depth--) {
+                walk.onStack.clear(walk.stack[depth]);
+            }
+            for (int i = 0; i < count; i++) {
+                resolved.clear(output[i]);
+            }
+        }
+        final List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(getResourceKey(output[i]));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @param resources  Finds a resource by its key.
+     * @param <R>        The resource type.
+     * @return The resources of {@link #resolveNamespaces(Collection)}.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public <R> List<R> resolveResources(final Collection<String> namespaces,
+                                        final Function<String, R> resources) throws DependencyException {
+        final List<String> keys = resolveNamespaces(namespaces);
+        final List<R> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            result.add(resources.apply(key));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private int open(final int node,
+                     final CompactDependencyGraph.Walk walk,
+                     final int depth) throws DependencyException {
+        if (unprovided.get(node) != NONE) {
+            throw DependencyException.nothingProvides(string(namespaceBytes, namespaceOffsets, unprovided.get(node)));
+        }
+        if (walk.onStack.get(node)) {
+            final List<String> parents = new ArrayList<>(depth);
+            for (int i = 0; i < depth; i++) {
+                parents.add(getResourceKey(walk.stack[i]));
+            }
+            throw DependencyException.circularError(getResourceKey(node), parents);
+        }
+        walk.onStack.set(node);
+        return node;
+    }
+}
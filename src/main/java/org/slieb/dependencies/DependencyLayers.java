@@ -0,0 +1,390 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * The closure of a set of entry points split into layers, where every node's dependencies are all in earlier layers.
+ * The nodes of one layer do not depend on each other and can be processed concurrently.
+ * <p>
+ * Every node is placed in the earliest layer it can go, which is the length of the longest chain of dependencies below
+ * it; this is the same layering Kahn's algorithm produces when it removes every ready node at once. Within a layer the
+ * nodes keep the order a {@link DependencyMapResolver} gives. The critical path of a node is the longest chain of
+ * nodes that depend on it, including itself: nodes with a long critical path should be started first, and
+ * {@link #execute(Function, Executor, int)} does.
+ *
+ * @param <Node> The node type.
+ */
+public class DependencyLayers<Node> {
+
+    private final CompactDependencyGraph<Node> graph;
+
+    private final int[] order;
+
+    private final int[] layerOf;
+
+    private final int[] criticalPath;
+
+    private final List<List<Node>> layers;
+
+    private DependencyLayers(final CompactDependencyGraph<Node> graph,
+                             final int[] order) {
+        this.graph = graph;
+        this.order = order;
+        this.layerOf = new int[graph.size()];
+        this.criticalPath = new int[graph.size()];
+        Arrays.fill(layerOf, -1);
+        int layerCount = 0;
+        for (int node : order) {
+            int layer = 0;
+            for (int i = 0; i < graph.getDependencyCount(node); i++) {
+                layer = Math.max(layer, layerOf[graph.getDependency(node, i)] + 1);
+            }
+            layerOf[node] = layer;
+            layerCount = Math.max(layerCount, layer + 1);
+        }
+        for (int index = order.length - 1; index >= 0; index--) {
+            final int node = order[index];
+            criticalPath[node] = Math.max(criticalPath[node], 1);
+            for (int i = 0; i < graph.getDependencyCount(node); i++) {
+                final int dependency = graph.getDependency(node, i);
+                criticalPath[dependency] = Math.max(criticalPath[dependency], criticalPath[node] + 1);
+            }
+        }
+        final List<List<Node>> layers = new ArrayList<>(layerCount);
+        for (int i = 0; i < layerCount; i++) {
+            layers.add(new ArrayList<>());
+        }
+        for (int node : order) {
+            layers.get(layerOf[node]).add(graph.getNode(node));
+        }
+        layers.replaceAll(Collections::unmodifiableList);
+        this.layers = Collections.unmodifiableList(layers);
+    }
+
+    /**
+     * @param dependencyMap A map of node to the nodes it depends on.
+     * @param entryPoints   The nodes to resolve.
+     * @param <Node>        The node type.
+     * @return The layers of the entry points and all their dependencies.
+     * @throws DependencyException If a node is missing or a cycle is found.
+     */
+    public static <Node> DependencyLayers<Node> of(final Map<Node, ? extends Collection<Node>> dependencyMap,
+                                                   final Collection<Node> entryPoints) throws DependencyException {
+        return of(CompactDependencyGraph.fromDependencyMap(dependencyMap), entryPoints);
+    }
+
+    /**
+     * @param graph       A compact graph, which can be shared by many layers.
+     * @param entryPoints The nodes to resolve.
+     * @param <Node>      The node type.
+     * @return The layers of the entry points and all their dependencies.
+     * @throws DependencyException If a node is missing or a cycle is found.
+     */
+    public static <Node> DependencyLayers<Node> of(final CompactDependencyGraph<Node> graph,
+                                                   final Collection<Node> entryPoints) throws DependencyException {
+        return new DependencyLayers<>(graph, graph.resolveIds(toIds(graph, entryPoints)));
+    }
+
+    /**
+     * Builds a compact graph of the whole dependency graph on every call. To layer many sets of namespaces over one
+     * graph, build a {@link ReachabilityIndex} once and use {@link #of(ReachabilityIndex, Collection)}.
+     *
+     * @param dependencyGraph A dependency graph.
+     * @param namespaces      The namespaces to resolve.
+     * @param <D>             A extension of the dependency node.
+     * @return The layers of the providers of the namespaces and all their dependencies.
+     * @throws DependencyException If a namespace is not provided or a cycle is found.
+     */
+    public static <D extends DependencyNode> DependencyLayers<D> of(final DependencyGraph<D> dependencyGraph,
+                                                                    final Collection<String> namespaces)
+            throws DependencyException {
+        if (namespaces == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final List<D> entryPoints = new ArrayList<>(namespaces.size());
+        for (String namespace : namespaces) {
+            final D node = dependencyGraph.getProvider(namespace);
+            if (node == null) {
+                throw DependencyException.nothingProvides(namespace);
+            }
+            entryPoints.add(node);
+        }
+        return of(CompactDependencyGraph.fromDependencyGraph(dependencyGraph), entryPoints);
+    }
+
+    /**
+     * The layers are built over the compact graph of the index, without its base list.
+     *
+     * @param index      A reachability index.
+     * @param namespaces The namespaces to resolve.
+     * @param <D>        A extension of the dependency node.
+     * @return The layers of the providers of the namespaces and all their dependencies.
+     * @throws DependencyException If a namespace is not provided or a cycle is found.
+     */
+    public static <D extends DependencyNode<?>> DependencyLayers<D> of(final ReachabilityIndex<D> index,
+                                                                       final Collection<String> namespaces)
+            throws DependencyException {
+        if (namespaces == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final int[] ids = new int[namespaces.size()];
+        int position = 0;
+        for (String namespace : namespaces) {
+            ids[position++] = index.getId(namespace);
+        }
+        final CompactDependencyGraph<D> graph = index.getCompactGraph();
+        return new DependencyLayers<>(graph, graph.resolveIds(ids));
+    }
+
+    private static <Node> int[] toIds(final CompactDependencyGraph<Node> graph,
+                                      final Collection<Node> entryPoints) throws DependencyException {
+        if (entryPoints == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final int[] ids = new int[entryPoints.size()];
+        int index = 0;
+        for (Node entryPoint : entryPoints) {
+            if (entryPoint == null) {
+                throw DependencyException.cannotResolveDependenciesForNullResource();
+            }
+            final int id = graph.getId(entryPoint);
+            if (id == -1) {
+                throw DependencyException.nothingProvides(entryPoint);
+            }
+            ids[index++] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * @return The layers, first layer first.
+     */
+    public List<List<Node>> getLayers() {
+        return layers;
+    }
+
+    /**
+     * @return The number of nodes on the longest chain of dependencies, which is the number of layers.
+     */
+    public int getCriticalPathLength() {
+        return layers.size();
+    }
+
+    private int getId(final Node node) {
+        final int id = graph.getId(node);
+        if (id == -1 || layerOf[id] == -1) {
+            throw new IllegalArgumentException(String.format("%s is not part of the layers", node));
+        }
+        return id;
+    }
+
+    /**
+     * @param node A node of the layers.
+     * @return The index of the layer the node is in.
+     */
+    public int getLayer(final Node node) {
+        return layerOf[getId(node)];
+    }
+
+    /**
+     * @param node A node of the layers.
+     * @return The number of nodes on the longest chain that starts at the node and follows the nodes that depend on
+     * it.
+     */
+    public int getCriticalPathLength(final Node node) {
+        return criticalPath[getId(node)];
+    }
+
+    /**
+     * Runs a task for every node, with at most one task per available processor running at a time.
+     *
+     * @param task     The task to run for a node.
+     * @param executor The executor to run the tasks on.
+     * @param <T>      The result type of the task.
+     * @return A future of the task results, in resolution order.
+     * @see #execute(Function, Executor, int)
+     */
+    public <T> CompletableFuture<Map<Node, T>> execute(final Function<? super Node, ? extends T> task,
+                                                       final Executor executor) {
+        return execute(task, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs a task for every node, each once the tasks of its dependencies have completed. Ready nodes wait in a queue
+     * ordered by longest critical path first and are only handed to the executor while fewer than
+     * {@code maxInFlight} tasks are running, so the order is decided here and not by the executor. When a task fails,
+     * the tasks of the nodes that depend on it are not run, and the returned future completes exceptionally once the
+     * running tasks have finished.
+     *
+     * @param task        The task to run for a node.
+     * @param executor    The executor to run the tasks on.
+     * @param maxInFlight The maximum number of tasks that run at the same time.
+     * @param <T>         The result type of the task.
+     * @return A future of the task results, in resolution order.
+     */
+    public <T> CompletableFuture<Map<Node, T>> execute(final Function<? super Node, ? extends T> task,
+                                                       final Executor executor,
+                                                       final int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        final Execution<T> execution = new Execution<>(task, executor, maxInFlight);
+        execution.dispatch();
+        return execution.done;
+    }
+
+    /**
+     * The state of one {@link #execute(Function, Executor, int)}. It is guarded by its own lock; tasks are handed to
+     * the executor outside of it.
+     */
+    private class Execution<T> {
+
+        private final Function<? super Node, ? extends T> task;
+
+        private final Executor executor;
+
+        private final int maxInFlight;
+
+        private final int[] waiting;
+
+        private final int[][] dependents;
+
+        private final Object[] results;
+
+        private final PriorityQueue<Integer> ready;
+
+        private final CompletableFuture<Map<Node, T>> done;
+
+        private int inFlight;
+
+        private boolean dispatching;
+
+        private Throwable failure;
+
+        private Execution(final Function<? super Node, ? extends T> task,
+                          final Executor executor,
+                          final int maxInFlight) {
+            this.task = task;
+            this.executor = executor;
+            this.maxInFlight = maxInFlight;
+            this.waiting = new int[graph.size()];
+            this.dependents = new int[graph.size()][];
+            this.results = new Object[graph.size()];
+            this.done = new CompletableFuture<>();
+            final int[] position = new int[graph.size()];
+            final int[] dependentCounts = new int[graph.size()];
+            for (int index = 0; index < order.length; index++) {
+                final int node = order[index];
+                position[node] = index;
+                waiting[node] = graph.getDependencyCount(node);
+                for (int i = 0; i < waiting[node]; i++) {
+                    dependentCounts[graph.getDependency(node, i)]++;
+                }
+            }
+            for (int node : order) {
+                dependents[node] = new int[dependentCounts[node]];
+                dependentCounts[node] = 0;
+            }
+            for (int node : order) {
+                for (int i = 0; i < graph.getDependencyCount(node); i++) {
+                    final int dependency = graph.getDependency(node, i);
+                    dependents[dependency][dependentCounts[dependency]++] = node;
+                }
+            }
+            this.ready = new PriorityQueue<>(Math.max(1, order.length), Comparator
+                    .<Integer>comparingInt(node -> -criticalPath[node])
+                    .thenComparingInt(node -> position[node]));
+            for (int node : order) {
+                if (waiting[node] == 0) {
+                    ready.add(node);
+                }
+            }
+        }
+
+        /**
+         * Hands ready nodes to the executor. Only one thread dispatches at a time; a task that completes meanwhile,
+         * including one run by a direct executor inside this loop, leaves its ready nodes for the loop to pick up, so
+         * the stack does not grow with the length of a chain.
+         */
+        private void dispatch() {
+            final List<Integer> started = new ArrayList<>();
+            while (true) {
+                final boolean finished;
+                synchronized (this) {
+                    if (started.isEmpty() && dispatching) {
+                        return;
+                    }
+                    started.clear();
+                    while (inFlight < maxInFlight && !ready.isEmpty()) {
+                        started.add(ready.poll());
+                        inFlight++;
+                    }
+                    dispatching = !started.isEmpty();
+                    finished = inFlight == 0;
+                }
+                if (started.isEmpty()) {
+                    if (finished) {
+                        finish();
+                    }
+                    return;
+                }
+                for (int node : started) {
+                    try {
+                        executor.execute(() -> run(node));
+                    } catch (RejectedExecutionException exception) {
+                        completed(node, null, exception);
+                    }
+                }
+            }
+        }
+
+        private void run(final int node) {
+            final T result;
+            try {
+                result = task.apply(graph.getNode(node));
+            } catch (Throwable exception) {
+                completed(node, null, exception);
+                return;
+            }
+            completed(node, result, null);
+        }
+
+        private void completed(final int node,
+                               final T result,
+                               final Throwable exception) {
+            synchronized (this) {
+                inFlight--;
+                if (exception != null) {
+                    if (failure == null) {
+                        failure = exception;
+                    }
+                } else {
+                    results[node] = result;
+                    for (int dependent : dependents[node]) {
+                        if (--waiting[dependent] == 0) {
+                            ready.add(dependent);
+                        }
+                    }
+                }
+            }
+            dispatch();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void finish() {
+            if (failure != null) {
+                done.completeExceptionally(failure);
+                return;
+            }
+            final Map<Node, T> map = new LinkedHashMap<>(order.length * 2);
+            for (int node : order) {
+                map.put(graph.getNode(node), (T) results[node]);
+            }
+            done.complete(Collections.unmodifiableMap(map));
+        }
+    }
+}
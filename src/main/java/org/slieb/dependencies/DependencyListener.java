@@ -0,0 +1,123 @@
+package org.slieb.dependencies;
+
+/**
+ * Receives timings and counts from the parse, index, resolve and module phases. Every method has an empty default,
+ * so a listener only implements what it needs.
+ * <p>
+ * Components default to {@link #NONE}, which also skips taking the timestamps, so an unobserved component pays
+ * nothing beyond a reference comparison. Listeners can be called from several threads at once and must be thread
+ * safe.
+ *
+ * @see JfrDependencyListener
+ */
+public interface DependencyListener {
+
+    /**
+     * A listener that ignores every event.
+     */
+    DependencyListener NONE = new DependencyListener() {
+    };
+
+    /**
+     * The phases that are timed.
+     */
+    enum Phase {
+        /**
+         * Parsing all resources into dependency nodes.
+         */
+        PARSE,
+        /**
+         * Building the provider index and dependency graph of the nodes.
+         */
+        INDEX,
+        /**
+         * Walking the graph from one entry point.
+         */
+        RESOLVE,
+        /**
+         * Placing the resolved nodes of one namespace into modules, hoisting shared nodes.
+         */
+        HOIST
+    }
+
+    /**
+     * @param phase The phase that completed.
+     * @param nanos How long it took, in nanoseconds.
+     */
+    default void phaseCompleted(Phase phase,
+                                long nanos) {
+    }
+
+    /**
+     * @param resource A resource that was parsed.
+     */
+    default void parsed(Object resource) {
+    }
+
+    /**
+     * @param resource A resource that could not be parsed.
+     * @param failure  The failure.
+     */
+    default void parseFailed(Object resource,
+                             Throwable failure) {
+    }
+
+    /**
+     * @param resource A resource that was not parsed again, because it did not change.
+     */
+    default void cacheHit(Object resource) {
+    }
+
+    /**
+     * @param key A namespace, or a list of namespaces, whose resolved closure was found in a cache.
+     */
+    default void closureCacheHit(Object key) {
+    }
+
+    /**
+     * @param key A namespace, or a list of namespaces, whose closure was not cached and had to be resolved.
+     */
+    default void closureCacheMiss(Object key) {
+    }
+
+    /**
+     * @param nodesVisited  The number of nodes the walk entered.
+     * @param edgesFollowed The number of dependency edges the walk looked at.
+     */
+    default void resolved(long nodesVisited,
+                          long edgesFollowed) {
+    }
+
+    /**
+     * @param module  The module that was resolved into.
+     * @param nodes   The number of nodes that were placed.
+     * @param hoisted The number of those nodes that were moved into a common module.
+     */
+    default void moduleResolved(String module,
+                                int nodes,
+                                int hoisted) {
+    }
+
+    /**
+     * @param listener A listener.
+     * @return The time to measure from, or 0 when the listener is {@link #NONE}.
+     */
+    static long start(final DependencyListener listener) {
+        return listener == NONE ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Reports a phase that was started with {@link #start(DependencyListener)}.
+     *
+     * @param listener A listener.
+     * @param phase    The phase that completed.
+     * @param start    The value {@link #start(DependencyListener)} returned.
+     */
+    static void end(final DependencyListener listener,
+                    final Phase phase,
+                    final long start) {
+        if (listener != NONE) {
+            listener.phaseCompleted(phase, System.nanoTime() - start);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.slieb.dependencies;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 
 /**
@@ -12,33 +13,104 @@ public class DependencyMapResolver<Node> {
 
     private final List<Node> resolvedNodes;
 
+    private final Set<Node> resolvedSet;
+
+    private final boolean detectCycles;
+
+    private DependencyListener listener = DependencyListener.NONE;
+
     public DependencyMapResolver(Map<Node, Set<Node>> dependencyMap) {
-        this.dependencyMap = dependencyMap;
-        this.resolvedNodes = new ArrayList<>();
+        this(dependencyMap, Collections.emptyList());
     }
 
     public DependencyMapResolver(Map<Node, Set<Node>> dependencyMap,
                                  List<Node> resolvedNodes) {
+        this(dependencyMap, resolvedNodes, true);
+    }
+
+    private DependencyMapResolver(final Map<Node, Set<Node>> dependencyMap,
+                                  final List<Node> resolvedNodes,
+                                  final boolean detectCycles) {
+        this(dependencyMap, new ArrayList<>(resolvedNodes), new HashSet<>(resolvedNodes), detectCycles);
+    }
+
+    private DependencyMapResolver(final Map<Node, Set<Node>> dependencyMap,
+                                  final List<Node> resolvedNodes,
+                                  final Set<Node> resolvedSet,
+                                  final boolean detectCycles) {
         this.dependencyMap = dependencyMap;
-        this.resolvedNodes = new ArrayList<>(resolvedNodes);
+        this.resolvedNodes = resolvedNodes;
+        this.resolvedSet = resolvedSet;
+        this.detectCycles = detectCycles;
+    }
+
+    /**
+     * Seeds the resolver without copying the nodes that are already resolved. Unlike the other constructors, those
+     * nodes are not part of {@link #resolve()}, which only returns the nodes the resolver added.
+     *
+     * @param dependencyMap A dependency map.
+     * @param resolved      Tells if a node is already resolved. It must not change while the resolver is in use.
+     * @param <Node>        The node type.
+     * @return A resolver over the map.
+     */
+    static <Node> DependencyMapResolver<Node> seeded(final Map<Node, Set<Node>> dependencyMap,
+                                                     final Predicate<? super Node> resolved) {
+        return new DependencyMapResolver<>(dependencyMap, new ArrayList<>(), new SeededSet<>(resolved), true);
+    }
+
+    /**
+     * Checks the whole map for cycles up front, so that resolving does not have to track the current path.
+     *
+     * @param dependencyMap A dependency map. It must not change while the resolver is in use.
+     * @param resolvedNodes Nodes that are already resolved.
+     * @param <Node>        The node type.
+     * @return A resolver over the map.
+     * @throws DependencyException If the map has cycles, listing every one of them.
+     */
+    public static <Node> DependencyMapResolver<Node> validated(Map<Node, Set<Node>> dependencyMap,
+                                                               List<Node> resolvedNodes) throws DependencyException {
+        DependencyCycles.analyze(dependencyMap).validate();
+        return new DependencyMapResolver<>(dependencyMap, resolvedNodes, false);
+    }
+
+    /**
+     * @param dependencyMap A dependency map. It must not change while the resolver is in use.
+     * @param <Node>        The node type.
+     * @return A resolver over the map.
+     * @throws DependencyException If the map has cycles, listing every one of them.
+     * @see #validated(Map, List)
+     */
+    public static <Node> DependencyMapResolver<Node> validated(Map<Node, Set<Node>> dependencyMap)
+            throws DependencyException {
+        return validated(dependencyMap, Collections.emptyList());
+    }
+
+    private Set<Node> getChildren(final Node node) throws DependencyException {
+        final Set<Node> children = dependencyMap.get(node);
+        if (children == null) {
+            throw DependencyException.nothingProvides(node);
+        }
+        return children;
+    }
+
+    /**
+     * @param listener A listener that is told about every walk.
+     * @return A reference to the dependency resolver.
+     */
+    public DependencyMapResolver<Node> withListener(DependencyListener listener) {
+        this.listener = listener;
+        return this;
     }
 
     // synchronized because resolvedNodes add in here.
-    private synchronized void resolveDependencies(final Node node,
-                                                  final HashSet<Node> parents) throws DependencyException {
-        if (!resolvedNodes.contains(node)) {
-            if (!dependencyMap.containsKey(node)) {
-                throw DependencyException.nothingProvides(node);
-            }
-            parents.add(node);
-            for (Node childNode : dependencyMap.get(node)) {
-                if (parents.contains(childNode)) {
-                    throw DependencyException.circularError(childNode, parents);
-                }
-                resolveDependencies(childNode, parents);
-            }
-            parents.remove(node);
-            resolvedNodes.add(node);
+    private synchronized void resolveDependencies(final Node node) throws DependencyException {
+        final long start = DependencyListener.start(listener);
+        final DependencyWalker<Node> walker = new DependencyWalker<>(this::getChildren, resolvedSet, detectCycles);
+        try {
+            walker.walk(node, resolvedNodes);
+        } finally {
+            listener.resolved(walker.getNodesVisited(), walker.getEdgesFollowed());
+            DependencyListener.end(listener, DependencyListener.Phase.RESOLVE, start);
         }
     }
 
@@ -52,7 +124,7 @@ public class DependencyMapResolver<Node> {
             throw DependencyException.cannotResolveDependenciesForNullResource();
         }
         try {
-            resolveDependencies(node, new HashSet<>());
+            resolveDependencies(node);
         } catch (DependencyException dependencyException) {
             throw DependencyException.cannotResolve(node, dependencyException);
         }
@@ -78,4 +150,41 @@ public class DependencyMapResolver<Node> {
     public List<Node> resolve() {
         return Collections.unmodifiableList(resolvedNodes);
     }
+
+    /**
+     * The nodes a seeded resolver treats as resolved: the seed, and every node the resolver adds. Only the added nodes
+     * are iterated.
+     */
+    private static class SeededSet<Node> extends AbstractSet<Node> {
+
+        private final Predicate<? super Node> seed;
+
+        private final Set<Node> added;
+
+        private SeededSet(final Predicate<? super Node> seed) {
+            this.seed = seed;
+            this.added = new HashSet<>();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean contains(final Object node) {
+            return added.contains(node) || seed.test((Node) node);
+        }
+
+        @Override
+        public boolean add(final Node node) {
+            return !seed.test(node) && added.add(node);
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            return added.iterator();
+        }
+
+        @Override
+        public int size() {
+            return added.size();
+        }
+    }
 }
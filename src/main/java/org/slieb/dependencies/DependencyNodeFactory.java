@@ -0,0 +1,24 @@
+package org.slieb.dependencies;
+
+import java.util.Set;
+
+/**
+ * Creates a dependency node from namespaces that were parsed earlier, such as results loaded from a
+ * {@link ParseResultStore}.
+ *
+ * @param <T> The resource type.
+ * @param <D> The dependency node type.
+ */
+@FunctionalInterface
+public interface DependencyNodeFactory<T, D extends DependencyNode<T>> {
+
+    /**
+     * @param resource The resource.
+     * @param provides The namespaces the resource provides.
+     * @param requires The namespaces the resource requires.
+     * @return A node of the resource.
+     */
+    D create(T resource,
+             Set<String> provides,
+             Set<String> requires);
+}
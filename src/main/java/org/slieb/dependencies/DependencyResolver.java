@@ -4,23 +4,47 @@ import java.util.*;
 
 /**
  * The dependency Resolver will resolve a collection of Dependencies.
- * note:          A draw back of this method is that too many items in the require chain will cause a long recursing
- * and result in a stackoverflow.
+ * note:          The require chain is walked with an explicit stack, so long chains are limited by the heap and not by
+ * the thread's stack size.
  *
  * @param <D> A extension of the dependency node.
  */
 public class DependencyResolver<D extends DependencyNode<?>> {
 
-    private final Collection<D> dependencyNodes;
+    private final DependencyGraph<D> dependencyGraph;
 
     private final ArrayList<D> resolvedNodes;
 
+    private final HashSet<D> resolvedSet;
+
+    private DependencyListener listener = DependencyListener.NONE;
+
+    /**
+     * @param dependencyGraph A compiled graph of dependency nodes.
+     */
+    public DependencyResolver(DependencyGraph<D> dependencyGraph) {
+        this.dependencyGraph = dependencyGraph;
+        this.resolvedNodes = new ArrayList<>();
+        this.resolvedSet = new HashSet<>();
+    }
+
+    /**
+     * @param dependencyGraph A compiled graph of dependency nodes.
+     * @param baseList        A baselist of files that need to be included.
+     */
+    public DependencyResolver(DependencyGraph<D> dependencyGraph,
+                              List<D> baseList) {
+        this(dependencyGraph);
+        if (baseList != null) {
+            baseList.forEach(this::addResolved);
+        }
+    }
+
     /**
      * @param dependencyNodes A list of dependency nodes..
      */
     public DependencyResolver(Collection<D> dependencyNodes) {
-        this.dependencyNodes = dependencyNodes;
-        this.resolvedNodes = new ArrayList<>();
+        this(CompiledDependencyGraph.compile(dependencyNodes));
     }
 
     /**
@@ -29,41 +53,44 @@ public class DependencyResolver<D extends DependencyNode<?>> {
      */
     public DependencyResolver(Collection<D> dependencyNodes,
                               List<D> baseList) {
-        this(dependencyNodes);
-        if (baseList != null) {
-            this.resolvedNodes.addAll(baseList);
+        this(CompiledDependencyGraph.compile(dependencyNodes), baseList);
+    }
+
+    private void addResolved(D node) {
+        if (resolvedSet.add(node)) {
+            resolvedNodes.add(node);
         }
     }
 
-    private D getProviderOfNamespace(String ns) {
-        return dependencyNodes.stream()
-                .filter(n -> n.getProvides().contains(ns))
-                .findFirst().orElse(null);
+    /**
+     * @param listener A listener that is told about every walk.
+     * @return A reference to the dependency resolver.
+     */
+    public DependencyResolver<D> withListener(DependencyListener listener) {
+        this.listener = listener;
+        return this;
     }
 
     // synchronized because resolvedNodes add in here.
-    private synchronized void resolveDependencies(D node,
-                                                  HashSet<D> parents) throws DependencyException {
-        if (!resolvedNodes.contains(node)) {
-            parents.add(node);
-            node.getRequires().forEach(ns -> resolveDependencies(ns, parents));
-            parents.remove(node);
-            resolvedNodes.add(node);
+    private synchronized void resolveDependencies(D node) throws DependencyException {
+        final long start = DependencyListener.start(listener);
+        final DependencyWalker<D> walker = new DependencyWalker<>(dependencyGraph::getDependencies, resolvedSet);
+        try {
+            walker.walk(node, resolvedNodes);
+        } finally {
+            listener.resolved(walker.getNodesVisited(), walker.getEdgesFollowed());
+            DependencyListener.end(listener, DependencyListener.Phase.RESOLVE, start);
         }
     }
 
-    private void resolveDependencies(String namespace, HashSet<D> parents) throws DependencyException {
-        final D node = getProviderOfNamespace(namespace);
+    private void resolveDependencies(String namespace) throws DependencyException {
+        final D node = dependencyGraph.getProvider(namespace);
 
         if (node == null) {
             throw DependencyException.nothingProvides(namespace);
         }
 
-        if (parents.contains(node)) {
-            throw DependencyException.circularError(namespace, parents);
-        }
-
-        resolveDependencies(node, parents);
+        resolveDependencies(node);
     }
 
 
@@ -73,7 +100,7 @@ public class DependencyResolver<D extends DependencyNode<?>> {
      * @throws DependencyException If dependency resolution fails.
      */
     public DependencyResolver<D> resolveNamespace(String namespace) throws DependencyException {
-        resolveDependencies(namespace, new HashSet<>());
+        resolveDependencies(namespace);
         return this;
     }
 
@@ -95,7 +122,7 @@ public class DependencyResolver<D extends DependencyNode<?>> {
      * @throws DependencyException If dependency resolution fails.
      */
     public DependencyResolver<D> resolveNode(D node) throws DependencyException {
-        resolveDependencies(node, new HashSet<>());
+        resolveDependencies(node);
         return this;
     }
 
@@ -0,0 +1,128 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * An explicit stack depth first walk over a dependency graph. Nodes are emitted in the same order a recursive
+ * post-order walk would produce them, but the depth of the graph is bounded by the heap and not the thread's stack.
+ *
+ * @param <N> The node type.
+ */
+final class DependencyWalker<N> {
+
+    private final Function<N, ? extends Iterable<N>> children;
+
+    private final Set<N> resolved;
+
+    private final ArrayDeque<Frame<N>> stack;
+
+    private final LinkedHashSet<N> parents;
+
+    private long nodesVisited, edgesFollowed;
+
+    /**
+     * @param children A function that returns the dependencies of a node, in resolution order.
+     * @param resolved The nodes that are already resolved. Emitted nodes are added to this set.
+     */
+    DependencyWalker(final Function<N, ? extends Iterable<N>> children,
+                     final Set<N> resolved) {
+        this(children, resolved, true);
+    }
+
+    /**
+     * @param children     A function that returns the dependencies of a node, in resolution order.
+     * @param resolved     The nodes that are already resolved. Emitted nodes are added to this set.
+     * @param detectCycles False to skip tracking the current path, for graphs that are known to be acyclic. A cycle
+     *                     then makes the walk run out of memory instead of failing.
+     */
+    DependencyWalker(final Function<N, ? extends Iterable<N>> children,
+                     final Set<N> resolved,
+                     final boolean detectCycles) {
+        this.children = children;
+        this.resolved = resolved;
+        this.stack = new ArrayDeque<>();
+        this.parents = detectCycles ? new LinkedHashSet<>() : null;
+    }
+
+    /**
+     * @param node A node to walk from.
+     * @return this walker.
+     * @throws DependencyException If the node's dependencies cannot be determined.
+     */
+    DependencyWalker<N> push(final N node) throws DependencyException {
+        if (!resolved.contains(node)) {
+            if (parents != null) {
+                if (parents.contains(node)) {
+                    throw DependencyException.circularError(node, parents);
+                }
+                parents.add(node);
+            }
+            stack.push(new Frame<>(node, children.apply(node).iterator()));
+            nodesVisited++;
+        }
+        return this;
+    }
+
+    /**
+     * @return The next node whose dependencies have all been emitted, or null once the walk is complete.
+     * @throws DependencyException If a circular dependency or a missing dependency is encountered.
+     */
+    N next() throws DependencyException {
+        while (!stack.isEmpty()) {
+            final Frame<N> frame = stack.peek();
+            if (frame.children.hasNext()) {
+                edgesFollowed++;
+                push(frame.children.next());
+            } else {
+                stack.pop();
+                if (parents != null) {
+                    parents.remove(frame.node);
+                }
+                resolved.add(frame.node);
+                return frame.node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param node   A node to walk from.
+     * @param output A list the emitted nodes are appended to.
+     * @throws DependencyException If the walk fails.
+     */
+    void walk(final N node,
+              final List<N> output) throws DependencyException {
+        push(node);
+        for (N next = next(); next != null; next = next()) {
+            output.add(next);
+        }
+    }
+
+    /**
+     * @return The number of nodes the walk has entered.
+     */
+    long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * @return The number of dependency edges the walk has looked at.
+     */
+    long getEdgesFollowed() {
+        return edgesFollowed;
+    }
+
+    private static class Frame<N> {
+
+        private final N node;
+
+        private final Iterator<N> children;
+
+        private Frame(final N node,
+                      final Iterator<N> children) {
+            this.node = node;
+            this.children = children;
+        }
+    }
+}
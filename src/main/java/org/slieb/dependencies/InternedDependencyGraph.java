@@ -0,0 +1,143 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+
+/**
+ * An immutable {@link DependencyGraph} of {@link CompactDependencyNode}s that share a {@link NamespaceTable}. The
+ * provider index is an array indexed by namespace id, so finding the dependencies of a node is an array lookup per
+ * require, without hashing a namespace string. Dependencies are returned in namespace id order.
+ * <p>
+ * When more than one node provides a namespace, the first node in the collection's iteration order is the provider.
+ *
+ * @param <R> The resource type.
+ */
+public class InternedDependencyGraph<R> implements DependencyGraph<CompactDependencyNode<R>> {
+
+    private final NamespaceTable table;
+
+    private final Collection<CompactDependencyNode<R>> nodes;
+
+    private final Set<CompactDependencyNode<R>> members;
+
+    private final Object[] providers;
+
+    private InternedDependencyGraph(final NamespaceTable table,
+                                    final Collection<CompactDependencyNode<R>> nodes) {
+        this.table = table;
+        this.nodes = Collections.unmodifiableCollection(nodes);
+        this.members = Collections.newSetFromMap(new IdentityHashMap<>(nodes.size()));
+        this.providers = new Object[table.size()];
+        for (CompactDependencyNode<R> node : nodes) {
+            if (node.getNamespaceTable() != table) {
+                throw new IllegalArgumentException(String.format("%s uses a different namespace table", node));
+            }
+            members.add(node);
+            for (int i = 0; i < node.getProvidesCount(); i++) {
+                final int id = node.getProvidesId(i);
+                if (providers[id] == null) {
+                    providers[id] = node;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param table The table every node was created with.
+     * @param nodes A collection of compact nodes.
+     * @param <R>   The resource type.
+     * @return A compiled graph of the nodes.
+     */
+    public static <R> InternedDependencyGraph<R> compile(final NamespaceTable table,
+                                                         final Collection<CompactDependencyNode<R>> nodes) {
+        if (nodes == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        return new InternedDependencyGraph<>(table, nodes);
+    }
+
+    /**
+     * Compiles nodes into an interned graph when they are all compact nodes of one table, and into a
+     * {@link CompiledDependencyGraph} otherwise. Both graphs resolve compact nodes in the same order, so callers that
+     * do not know their node type can use this instead of picking a graph.
+     *
+     * @param nodes A collection of dependency nodes.
+     * @param <D>   A extension of the dependency node.
+     * @return A compiled graph of the nodes.
+     */
+    @SuppressWarnings("unchecked")
+    static <D extends DependencyNode> DependencyGraph<D> compileShared(final Collection<D> nodes) {
+        if (nodes == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        NamespaceTable table = null;
+        for (D node : nodes) {
+            if (!(node instanceof CompactDependencyNode)) {
+                return CompiledDependencyGraph.compile(nodes);
+            }
+            final NamespaceTable nodeTable = ((CompactDependencyNode<?>) node).getNamespaceTable();
+            if (table == null) {
+                table = nodeTable;
+            } else if (table != nodeTable) {
+                return CompiledDependencyGraph.compile(nodes);
+            }
+        }
+        if (table == null) {
+            return CompiledDependencyGraph.compile(nodes);
+        }
+        return (DependencyGraph<D>) (DependencyGraph<?>) new InternedDependencyGraph<>(
+                table, (Collection<CompactDependencyNode<Object>>) (Collection<?>) nodes);
+    }
+
+    public NamespaceTable getNamespaceTable() {
+        return table;
+    }
+
+    @Override
+    public Collection<CompactDependencyNode<R>> getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public boolean containsNode(final CompactDependencyNode<R> node) {
+        return members.contains(node);
+    }
+
+    /**
+     * @param id A namespace id.
+     * @return The node that provides the namespace, or null if nothing provides it.
+     */
+    @SuppressWarnings("unchecked")
+    public CompactDependencyNode<R> getProvider(final int id) {
+        return id >= 0 && id < providers.length ? (CompactDependencyNode<R>) providers[id] : null;
+    }
+
+    @Override
+    public CompactDependencyNode<R> getProvider(final String namespace) {
+        return getProvider(table.getId(namespace));
+    }
+
+    @Override
+    public List<CompactDependencyNode<R>> getDependencies(final CompactDependencyNode<R> node)
+            throws DependencyException {
+        final List<CompactDependencyNode<R>> result = new ArrayList<>(node.getRequiresCount());
+        if (node.getNamespaceTable() != table) {
+            for (String namespace : node.getRequires()) {
+                result.add(provider(table.getId(namespace), namespace));
+            }
+        } else {
+            for (int i = 0; i < node.getRequiresCount(); i++) {
+                result.add(provider(node.getRequiresId(i), null));
+            }
+        }
+        return result;
+    }
+
+    private CompactDependencyNode<R> provider(final int id,
+                                              final String namespace) {
+        final CompactDependencyNode<R> provider = getProvider(id);
+        if (provider == null) {
+            throw DependencyException.nothingProvides(namespace != null ? namespace : table.getNamespace(id));
+        }
+        return provider;
+    }
+}
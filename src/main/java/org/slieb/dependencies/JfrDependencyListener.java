@@ -0,0 +1,191 @@
+package org.slieb.dependencies;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A {@link DependencyListener} that emits JDK Flight Recorder events, so dependency calculation shows up in a recording
+ * next to GC and allocation data. The events are only committed while a recording has them enabled.
+ * <p>
+ * This class needs the {@code jdk.jfr} module at runtime; nothing else in this package depends on it.
+ */
+public class JfrDependencyListener implements DependencyListener {
+
+    @Override
+    public void phaseCompleted(final Phase phase,
+                               final long nanos) {
+        final PhaseEvent event = new PhaseEvent();
+        if (event.shouldCommit()) {
+            event.phase = phase.name();
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void parsed(final Object resource) {
+        final ParseEvent event = new ParseEvent();
+        if (event.shouldCommit()) {
+            event.resource = String.valueOf(resource);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void parseFailed(final Object resource,
+                            final Throwable failure) {
+        final ParseFailureEvent event = new ParseFailureEvent();
+        if (event.shouldCommit()) {
+            event.resource = String.valueOf(resource);
+            event.message = failure.getMessage();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void cacheHit(final Object resource) {
+        final CacheHitEvent event = new CacheHitEvent();
+        if (event.shouldCommit()) {
+            event.resource = String.valueOf(resource);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void closureCacheHit(final Object key) {
+        closureCache(key, true);
+    }
+
+    @Override
+    public void closureCacheMiss(final Object key) {
+        closureCache(key, false);
+    }
+
+    private static void closureCache(final Object key,
+                                     final boolean hit) {
+        final ClosureCacheEvent event = new ClosureCacheEvent();
+        if (event.shouldCommit()) {
+            event.key = String.valueOf(key);
+            event.hit = hit;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void resolved(final long nodesVisited,
+                         final long edgesFollowed) {
+        final ResolveEvent event = new ResolveEvent();
+        if (event.shouldCommit()) {
+            event.nodesVisited = nodesVisited;
+            event.edgesFollowed = edgesFollowed;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void moduleResolved(final String module,
+                               final int nodes,
+                               final int hoisted) {
+        final ModuleEvent event = new ModuleEvent();
+        if (event.shouldCommit()) {
+            event.module = module;
+            event.nodes = nodes;
+            event.hoisted = hoisted;
+            event.commit();
+        }
+    }
+
+    @Name("org.slieb.dependencies.Phase")
+    @Label("Dependency Phase")
+    @Description("A completed parse, index, resolve or hoist phase.")
+    @Category("Dependencies")
+    @StackTrace(false)
+    static class PhaseEvent extends Event {
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Phase Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("org.slieb.dependencies.Parse")
+    @Label("Dependency Parse")
+    @Category("Dependencies")
+    @StackTrace(false)
+    static class ParseEvent extends Event {
+
+        @Label("Resource")
+        String resource;
+    }
+
+    @Name("org.slieb.dependencies.ParseFailure")
+    @Label("Dependency Parse Failure")
+    @Category("Dependencies")
+    static class ParseFailureEvent extends Event {
+
+        @Label("Resource")
+        String resource;
+
+        @Label("Message")
+        String message;
+    }
+
+    @Name("org.slieb.dependencies.CacheHit")
+    @Label("Dependency Cache Hit")
+    @Category("Dependencies")
+    @StackTrace(false)
+    static class CacheHitEvent extends Event {
+
+        @Label("Resource")
+        String resource;
+    }
+
+    @Name("org.slieb.dependencies.ClosureCache")
+    @Label("Closure Cache Lookup")
+    @Category("Dependencies")
+    @StackTrace(false)
+    static class ClosureCacheEvent extends Event {
+
+        @Label("Key")
+        String key;
+
+        @Label("Hit")
+        boolean hit;
+    }
+
+    @Name("org.slieb.dependencies.Resolve")
+    @Label("Dependency Resolve")
+    @Category("Dependencies")
+    @StackTrace(false)
+    static class ResolveEvent extends Event {
+
+        @Label("Nodes Visited")
+        long nodesVisited;
+
+        @Label("Edges Followed")
+        long edgesFollowed;
+    }
+
+    @Name("org.slieb.dependencies.Module")
+    @Label("Module Resolve")
+    @Category("Dependencies")
+    @StackTrace(false)
+    static class ModuleEvent extends Event {
+
+        @Label("Module")
+        String module;
+
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Hoisted Nodes")
+        int hoisted;
+    }
+}
@@ -0,0 +1,234 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+
+/**
+ * A lowest common ancestor index over the dominator tree of a module graph.
+ * <p>
+ * The module graph is rooted at a virtual root that every module without dependencies hangs from. A module dominates
+ * another module when every chain of dependencies from the root to that module passes through it, so a dominator is
+ * always something the dominated module depends on. The common module of a set of modules is the lowest common
+ * ancestor of the set in the dominator tree, found with binary lifting in O(log m). When the only common ancestor is
+ * the virtual root there is no common module.
+ */
+final class ModuleDominatorIndex {
+
+    private static final int ROOT = 0;
+
+    private final Map<String, Integer> ids;
+
+    private final String[] names;
+
+    private final int[] depth;
+
+    private final int[][] ancestors;
+
+    /**
+     * @param moduleTree A map of module name to the names of the modules it depends on.
+     */
+    ModuleDominatorIndex(final Map<String, Set<String>> moduleTree) {
+        final List<String> modules = new ArrayList<>(new TreeSet<>(moduleTree.keySet()));
+        final int size = modules.size() + 1;
+        this.ids = new HashMap<>();
+        this.names = new String[size];
+        for (int i = 0; i < modules.size(); i++) {
+            ids.put(modules.get(i), i + 1);
+            names[i + 1] = modules.get(i);
+        }
+
+        final List<List<Integer>> successors = new ArrayList<>(size);
+        final List<List<Integer>> predecessors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            successors.add(new ArrayList<>());
+            predecessors.add(new ArrayList<>());
+        }
+        for (int module = 1; module < size; module++) {
+            final Set<String> dependencies = moduleTree.get(names[module]);
+            for (String dependency : new TreeSet<>(dependencies)) {
+                final Integer dependencyId = ids.get(dependency);
+                if (dependencyId != null) {
+                    successors.get(dependencyId).add(module);
+                    predecessors.get(module).add(dependencyId);
+                }
+            }
+            if (predecessors.get(module).isEmpty()) {
+                successors.get(ROOT).add(module);
+                predecessors.get(module).add(ROOT);
+            }
+        }
+
+        attachUnreachable(successors, predecessors);
+        final int[] order = reversePostOrder(successors);
+        final int[] position = new int[size];
+        for (int i = 0; i < size; i++) {
+            position[order[i]] = i;
+        }
+        final int[] dominators = dominators(order, position, predecessors);
+
+        this.depth = new int[size];
+        for (int i = 1; i < size; i++) {
+            depth[order[i]] = depth[dominators[order[i]]] + 1;
+        }
+        int levels = 1;
+        while ((1 << levels) < size) {
+            levels++;
+        }
+        this.ancestors = new int[levels][];
+        this.ancestors[0] = dominators;
+        for (int level = 1; level < levels; level++) {
+            final int[] previous = ancestors[level - 1];
+            final int[] current = new int[size];
+            for (int i = 0; i < size; i++) {
+                current[i] = previous[previous[i]];
+            }
+            ancestors[level] = current;
+        }
+    }
+
+    /**
+     * Modules that cannot be reached from the root, which only happens when modules depend on each other in a cycle,
+     * are attached to the root.
+     */
+    private static void attachUnreachable(final List<List<Integer>> successors,
+                                          final List<List<Integer>> predecessors) {
+        final int size = successors.size();
+        final boolean[] visited = new boolean[size];
+        final Deque<Integer> stack = new ArrayDeque<>();
+        for (int start = 0; start < size; start++) {
+            if (visited[start]) {
+                continue;
+            }
+            if (start != ROOT) {
+                successors.get(ROOT).add(start);
+                predecessors.get(start).add(ROOT);
+            }
+            visited[start] = true;
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                for (int successor : successors.get(stack.pop())) {
+                    if (!visited[successor]) {
+                        visited[successor] = true;
+                        stack.push(successor);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Orders the graph so that every module comes after all of its dominators, with the root first.
+     */
+    private static int[] reversePostOrder(final List<List<Integer>> successors) {
+        final int size = successors.size();
+        final boolean[] visited = new boolean[size];
+        final int[] order = new int[size];
+        int count = size;
+        final Deque<int[]> stack = new ArrayDeque<>();
+        visited[ROOT] = true;
+        stack.push(new int[]{ROOT, 0});
+        while (!stack.isEmpty()) {
+            final int[] frame = stack.peek();
+            final List<Integer> next = successors.get(frame[0]);
+            if (frame[1] < next.size()) {
+                final int successor = next.get(frame[1]++);
+                if (!visited[successor]) {
+                    visited[successor] = true;
+                    stack.push(new int[]{successor, 0});
+                }
+            } else {
+                stack.pop();
+                order[--count] = frame[0];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * The iterative dominator algorithm of Cooper, Harvey and Kennedy.
+     */
+    private static int[] dominators(final int[] order,
+                                    final int[] position,
+                                    final List<List<Integer>> predecessors) {
+        final int size = order.length;
+        final int[] dominators = new int[size];
+        Arrays.fill(dominators, -1);
+        dominators[ROOT] = ROOT;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < size; i++) {
+                final int module = order[i];
+                int dominator = -1;
+                for (int predecessor : predecessors.get(module)) {
+                    if (dominators[predecessor] != -1) {
+                        dominator = dominator == -1 ? predecessor :
+                                intersect(dominators, position, predecessor, dominator);
+                    }
+                }
+                if (dominators[module] != dominator) {
+                    dominators[module] = dominator;
+                    changed = true;
+                }
+            }
+        }
+        return dominators;
+    }
+
+    private static int intersect(final int[] dominators,
+                                 final int[] position,
+                                 int left,
+                                 int right) {
+        while (left != right) {
+            while (position[left] > position[right]) {
+                left = dominators[left];
+            }
+            while (position[right] > position[left]) {
+                right = dominators[right];
+            }
+        }
+        return left;
+    }
+
+    private int lowestCommonAncestor(int left,
+                                     int right) {
+        if (depth[left] < depth[right]) {
+            final int swap = left;
+            left = right;
+            right = swap;
+        }
+        for (int level = ancestors.length - 1; level >= 0; level--) {
+            if (depth[left] - (1 << level) >= depth[right]) {
+                left = ancestors[level][left];
+            }
+        }
+        if (left == right) {
+            return left;
+        }
+        for (int level = ancestors.length - 1; level >= 0; level--) {
+            if (ancestors[level][left] != ancestors[level][right]) {
+                left = ancestors[level][left];
+                right = ancestors[level][right];
+            }
+        }
+        return ancestors[0][left];
+    }
+
+    /**
+     * @param modules A set of module names.
+     * @return The nearest module that every module in the set depends on or is, or null if there is none.
+     */
+    String getCommonModule(final Collection<String> modules) {
+        int common = -1;
+        for (String module : modules) {
+            final Integer id = ids.get(module);
+            if (id == null) {
+                return null;
+            }
+            common = common == -1 ? id : lowestCommonAncestor(common, id);
+            if (common == ROOT) {
+                return null;
+            }
+        }
+        return common == -1 ? null : names[common];
+    }
+}
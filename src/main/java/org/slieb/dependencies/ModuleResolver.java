@@ -2,9 +2,10 @@ package org.slieb.dependencies;
 
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toMap;
@@ -14,34 +15,77 @@ public class ModuleResolver<Node extends DependencyNode> {
 
     private final Set<String> seenModules;
     private final Map<String, Set<String>> moduleTree;
-    private final Map<String, List<Node>> resolvedNodes;
+    private final Map<String, Set<Node>> resolvedNodes;
+    private final Map<String, Set<String>> moduleDependents;
+    private final Map<String, Set<Node>> inheritedNodes;
+    private final Set<String> changedModules;
+    private final Map<Node, Set<String>> nodeModules;
     private final Map<Node, Set<Node>> dependencyMap;
+    private final DependencyGraph<Node> dependencyGraph;
     private final String commonModule;
     private final List<Node> baselist;
+    private ModuleDominatorIndex dominatorIndex;
+    private DependencyListener listener = DependencyListener.NONE;
 
 
-    public ModuleResolver(final Map<Node, Set<Node>> dependencyMap,
-                          final String commonModule,
-                          final List<Node> baselist) {
+    private ModuleResolver(final Map<Node, Set<Node>> dependencyMap,
+                           final DependencyGraph<Node> dependencyGraph,
+                           final String commonModule,
+                           final List<Node> baselist) {
         this.dependencyMap = dependencyMap;
+        this.dependencyGraph = dependencyGraph;
         this.seenModules = new HashSet<>();
         this.moduleTree = new ConcurrentHashMap<>();
         this.resolvedNodes = new ConcurrentHashMap<>();
+        this.moduleDependents = new HashMap<>();
+        this.inheritedNodes = new HashMap<>();
+        this.changedModules = new HashSet<>();
+        this.nodeModules = new HashMap<>();
         this.baselist = baselist;
         this.commonModule = commonModule;
     }
 
+    public ModuleResolver(final Map<Node, Set<Node>> dependencyMap,
+                          final String commonModule,
+                          final List<Node> baselist) {
+        this(dependencyMap, CompiledDependencyGraph.compile(dependencyMap.keySet()), commonModule, baselist);
+    }
 
     public ModuleResolver(final Map<Node, Set<Node>> dependencyMap,
                           final String commonModule) {
         this(dependencyMap, commonModule, new ArrayList<>());
     }
 
+    /**
+     * Resolves against a dependency graph, such as a {@link MutableDependencyGraph}. Updates to the graph are seen by
+     * later resolves; nodes that were already placed in modules stay where they are.
+     *
+     * @param dependencyGraph The dependency graph.
+     * @param commonModule    The module shared nodes go into when modules have no common dependency.
+     * @param baselist        Nodes that are treated as already resolved.
+     */
+    public ModuleResolver(final DependencyGraph<Node> dependencyGraph,
+                          final String commonModule,
+                          final List<Node> baselist) {
+        this(dependencyGraph.asDependencyMap(), dependencyGraph, commonModule, baselist);
+    }
+
+    /**
+     * @param listener A listener that is told about every namespace resolve and hoist.
+     * @return A reference to the module resolver.
+     */
+    public ModuleResolver<Node> withListener(final DependencyListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
     public ModuleResolver resolveModule(final String moduleName) {
         if (!this.seenModules.contains(moduleName)) {
-            this.resolvedNodes.put(moduleName, new ArrayList<>());
+            this.resolvedNodes.put(moduleName, new LinkedHashSet<>());
             this.moduleTree.put(moduleName, new HashSet<>());
+            this.moduleDependents.put(moduleName, new HashSet<>());
             this.seenModules.add(moduleName);
+            this.dominatorIndex = null;
         }
         return this;
     }
@@ -50,7 +94,8 @@ public class ModuleResolver<Node extends DependencyNode> {
                                                   final String depModuleName) {
         this.resolveModule(moduleName);
         this.resolveModule(depModuleName);
-        this.moduleTree.get(moduleName).add(depModuleName);
+        this.addModuleDependency(moduleName, depModuleName);
+        this.invalidateChangedModules();
         return this;
     }
 
@@ -72,99 +117,248 @@ public class ModuleResolver<Node extends DependencyNode> {
             throw DependencyException.cannotResolveModuleWithNullNamespace(moduleName);
         }
 
-        this.resolveModuleWithDependencyList(moduleName, new DependencyMapResolver<>(
+        final Set<Node> inherited = getInheritedNodes(moduleName), own = resolvedNodes.get(moduleName);
+        final List<Node> added = DependencyMapResolver.seeded(
                 dependencyMap,
-                Stream.concat(baselist.stream(),
-                              getResolvedNodesForModule(moduleName))
-                        .distinct()
-                        .collect(Collectors.toList()))
-                .resolveNode(getProviderOfNamespace(namespace).get())
-                .resolve());
+                node -> inherited.contains(node) || own.contains(node))
+                .withListener(listener)
+                .resolveNode(getProviderOfNamespace(namespace))
+                .resolve();
+        hoist(moduleName, getAvailableNodes(inherited, own, added));
         return this;
     }
 
-    private ModuleResolver<Node> resolveModuleWithDependencyList(final String moduleName,
-                                                                 final List<Node> allModuleResolvedNodes) {
-        this.resolveModule(moduleName);
-        allModuleResolvedNodes.forEach(node -> {
-            Set<String> modulesThatContainNode = this.getAllModulesFor(node);
-            if (modulesThatContainNode.size() == 0) {
-                this.resolvedNodes.get(moduleName).add(node);
-            } else if (!(modulesThatContainNode.contains(moduleName) && modulesThatContainNode.size() == 1)) {
-                final String commonModule = getCommonModule(
-                        Stream.concat(modulesThatContainNode.stream(), Stream.of(moduleName)).distinct().collect(
-                                toSet()));
-                this.resolveModule(commonModule);
-                if (modulesThatContainNode.contains(commonModule)) {
-                    modulesThatContainNode.stream()
-                            .filter(m -> !commonModule.equals(m))
-                            .forEach(m -> {
-                                this.resolvedNodes.get(m).remove(node);
-                                this.moduleTree.get(m).add(commonModule);
-                            });
-                } else {
-                    modulesThatContainNode.forEach(m -> {
-                        this.resolvedNodes.get(m).remove(node);
-                        this.moduleTree.get(m).add(commonModule);
-                    });
-                    this.resolvedNodes.get(commonModule).add(node);
+    /**
+     * Resolves a whole specification of modules, giving exactly the result of calling
+     * {@link #resolveModuleWithNamespaces(String, Set)} for every module in iteration order.
+     * <p>
+     * The closure of every namespace is resolved up front on the executor, only treating the baselist as resolved.
+     * The modules are then merged one by one on the calling thread: the nodes a module already has are left out of the
+     * closure and the rest are placed and hoisted as usual. Leaving them out is the same as not walking them only if
+     * everything they depend on is also in the module; when that does not hold, the namespace is resolved again for
+     * the module, so the result never depends on the executor. The listener, if any, must be thread safe.
+     *
+     * @param modules  The namespaces of every module, in resolution order.
+     * @param executor The executor to resolve the closures on.
+     * @return A reference to the module resolver.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public ModuleResolver<Node> resolveModules(final Map<String, ? extends Collection<String>> modules,
+                                               final Executor executor) throws DependencyException {
+        final Map<String, CompletableFuture<List<Node>>> closures = new HashMap<>();
+        for (Collection<String> namespaces : modules.values()) {
+            for (String namespace : namespaces) {
+                closures.computeIfAbsent(namespace, ns -> CompletableFuture.supplyAsync(
+                        () -> new DependencyMapResolver<>(dependencyMap, baselist)
+                                .withListener(listener)
+                                .resolveNode(getProviderOfNamespace(ns))
+                                .resolve(), executor));
+            }
+        }
+        for (Map.Entry<String, ? extends Collection<String>> module : modules.entrySet()) {
+            for (String namespace : module.getValue()) {
+                final List<Node> closure = closures.get(namespace).handle((nodes, failure) -> nodes).join();
+                if (module.getKey() == null || namespace == null || closure == null ||
+                        !resolveModuleWithClosure(module.getKey(), closure.subList(baselist.size(), closure.size()))) {
+                    resolveModuleWithNamespace(module.getKey(), namespace);
                 }
             }
-        });
+        }
         return this;
     }
 
-    private Stream<Node> getResolvedNodesForModule(String moduleName) {
-        this.resolveModule(moduleName);
-        return Stream.concat(this.moduleTree.get(moduleName).stream()
-                                     .flatMap(depModule -> getResolvedNodesForModule(moduleName)),
-                             this.resolvedNodes.get(moduleName).stream());
+    /**
+     * @param closure The closure of a namespace, without the baselist.
+     * @return False if the closure walks through a node of the module that has dependencies outside the module.
+     */
+    private boolean resolveModuleWithClosure(final String moduleName,
+                                             final List<Node> closure) {
+        final Set<Node> inherited = getInheritedNodes(moduleName), own = resolvedNodes.get(moduleName);
+        final List<Node> added = new ArrayList<>();
+        for (Node node : closure) {
+            if (inherited.contains(node) || own.contains(node)) {
+                for (Node dependency : dependencyMap.get(node)) {
+                    if (!inherited.contains(dependency) && !own.contains(dependency)) {
+                        return false;
+                    }
+                }
+            } else {
+                added.add(node);
+            }
+        }
+        hoist(moduleName, getAvailableNodes(inherited, own, added));
+        return true;
     }
 
-    private Optional<Node> getProviderOfNamespace(String ns) {
-        return dependencyMap.keySet().stream().filter(dep -> dep.getProvides().contains(ns)).findFirst();
+    /**
+     * A lazy view of the nodes a resolve for a module places: the baselist and the nodes of the module and the modules
+     * it depends on, which the resolve treated as already resolved, followed by the nodes it added. Placing a node
+     * only adds nodes of the inherited set to the module, so the view can be iterated while the nodes are placed.
+     */
+    private Iterable<Node> getAvailableNodes(final Set<Node> inherited,
+                                             final Set<Node> own,
+                                             final List<Node> added) {
+        return () -> Stream.concat(Stream.concat(inherited.stream(), own.stream().filter(n -> !inherited.contains(n))),
+                                   added.stream()).iterator();
     }
 
-    private Set<String> getAllModulesFor(Node node) {
-        return resolvedNodes.entrySet().stream()
-                .filter(entry -> entry.getValue().contains(node)).map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
+    /**
+     * The baselist and the nodes of every module the module depends on, directly or not. The set is kept until one of
+     * those modules or their dependencies change, so resolving namespace after namespace into a module does not
+     * collect its ancestors again.
+     */
+    private Set<Node> getInheritedNodes(final String moduleName) {
+        this.resolveModule(moduleName);
+        Set<Node> inherited = inheritedNodes.get(moduleName);
+        if (inherited == null) {
+            inherited = new LinkedHashSet<>(baselist);
+            final Set<String> visited = new HashSet<>(Collections.singleton(moduleName));
+            for (String depModule : moduleTree.get(moduleName)) {
+                collectModuleNodes(depModule, visited, inherited);
+            }
+            inheritedNodes.put(moduleName, inherited);
+        }
+        return inherited;
     }
 
+    private void collectModuleNodes(final String moduleName,
+                                    final Set<String> visited,
+                                    final Set<Node> result) {
+        if (visited.add(moduleName)) {
+            for (String depModule : moduleTree.get(moduleName)) {
+                collectModuleNodes(depModule, visited, result);
+            }
+            result.addAll(resolvedNodes.get(moduleName));
+        }
+    }
 
-    private String getCommonModule(Set<String> modulesWhereThisDepLives) {
-        return modulesWhereThisDepLives.stream().reduce(this::getCommonOfTwoModules).orElse(this.commonModule);
+    /**
+     * Drops the inherited nodes of every module that depends on a module that changed since the last call, directly
+     * or not. Placing the nodes of a resolve only marks the modules it changes, so this walks the module graph once
+     * per resolve.
+     */
+    private void invalidateChangedModules() {
+        if (changedModules.isEmpty()) {
+            return;
+        }
+        final ArrayDeque<String> queue = new ArrayDeque<>();
+        final Set<String> visited = new HashSet<>();
+        for (String moduleName : changedModules) {
+            for (String dependent : moduleDependents.get(moduleName)) {
+                if (visited.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        changedModules.clear();
+        while (!queue.isEmpty()) {
+            final String dependent = queue.poll();
+            inheritedNodes.remove(dependent);
+            for (String next : moduleDependents.get(dependent)) {
+                if (visited.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
     }
 
+    private void hoist(final String moduleName,
+                       final Iterable<Node> allModuleResolvedNodes) {
+        final long start = DependencyListener.start(listener);
+        this.resolveModule(moduleName);
+        int nodes = 0, hoisted = 0;
+        try {
+            for (Node node : allModuleResolvedNodes) {
+                nodes++;
+                if (this.resolveModuleWithDependency(moduleName, node)) {
+                    hoisted++;
+                }
+            }
+        } finally {
+            this.invalidateChangedModules();
+        }
+        DependencyListener.end(listener, DependencyListener.Phase.HOIST, start);
+        listener.moduleResolved(moduleName, nodes, hoisted);
+    }
 
-    private String getCommonOfTwoModules(final String moduleOne,
-                                         final String moduleTwo) {
-        return Optional.ofNullable(findCommonWithCursor(moduleOne, moduleTwo))
-                .orElse(this.commonModule);
+    /**
+     * @return True if the node was moved into a common module.
+     */
+    private boolean resolveModuleWithDependency(final String moduleName,
+                                                final Node node) {
+        Set<String> modulesThatContainNode = this.getAllModulesFor(node);
+        if (modulesThatContainNode.size() == 0) {
+            this.addNodeToModule(moduleName, node);
+        } else if (!(modulesThatContainNode.contains(moduleName) && modulesThatContainNode.size() == 1)) {
+            final String commonModule = getCommonModule(
+                    Stream.concat(modulesThatContainNode.stream(), Stream.of(moduleName)).distinct().collect(
+                            toSet()));
+            this.resolveModule(commonModule);
+            if (modulesThatContainNode.contains(commonModule)) {
+                modulesThatContainNode.stream()
+                        .filter(m -> !commonModule.equals(m))
+                        .forEach(m -> {
+                            this.removeNodeFromModule(m, node);
+                            this.addModuleDependency(m, commonModule);
+                        });
+            } else {
+                modulesThatContainNode.forEach(m -> {
+                    this.removeNodeFromModule(m, node);
+                    this.addModuleDependency(m, commonModule);
+                });
+                this.addNodeToModule(commonModule, node);
+            }
+            return true;
+        }
+        return false;
     }
 
-    private String findCommonWithCursor(final String pivot,
-                                        final String cursorStart) {
-        String result = this.findCommonWithPivot(pivot, cursorStart);
-        if (result != null && this.moduleTree.containsKey(pivot)) {
-            result = this.moduleTree.get(pivot).stream()
-                    .map(dep -> this.findCommonWithCursor(dep, cursorStart))
-                    .findFirst().orElse(null);
+    private Node getProviderOfNamespace(String ns) {
+        final Node provider = dependencyGraph.getProvider(ns);
+        if (provider == null) {
+            throw DependencyException.nothingProvides(ns);
         }
-        return result;
+        return provider;
     }
 
-    private String findCommonWithPivot(final String pivot,
-                                       final String cursor) {
+    private void addModuleDependency(final String moduleName,
+                                     final String depModuleName) {
+        if (this.moduleTree.get(moduleName).add(depModuleName)) {
+            this.moduleDependents.get(depModuleName).add(moduleName);
+            this.dominatorIndex = null;
+            this.inheritedNodes.remove(moduleName);
+            this.changedModules.add(moduleName);
+        }
+    }
 
-        if (Objects.equals(pivot, cursor)) {
-            return pivot;
+    private void addNodeToModule(final String moduleName,
+                                 final Node node) {
+        if (this.resolvedNodes.get(moduleName).add(node)) {
+            this.nodeModules.computeIfAbsent(node, n -> new HashSet<>()).add(moduleName);
+            this.changedModules.add(moduleName);
         }
+    }
+
+    private void removeNodeFromModule(final String moduleName,
+                                      final Node node) {
+        if (this.resolvedNodes.get(moduleName).remove(node)) {
+            this.nodeModules.get(node).remove(moduleName);
+            this.changedModules.add(moduleName);
+        }
+    }
 
-        return moduleTree.get(cursor).stream()
-                .map(next -> findCommonWithPivot(pivot, next))
-                .filter(r -> r != null)
-                .findFirst().orElse(null);
+    private Set<String> getAllModulesFor(Node node) {
+        final Set<String> modules = nodeModules.get(node);
+        return modules == null ? new HashSet<>() : new HashSet<>(modules);
+    }
+
+
+    private String getCommonModule(Set<String> modulesWhereThisDepLives) {
+        if (this.dominatorIndex == null) {
+            this.dominatorIndex = new ModuleDominatorIndex(moduleTree);
+        }
+        return Optional.ofNullable(this.dominatorIndex.getCommonModule(modulesWhereThisDepLives))
+                .orElse(this.commonModule);
     }
 
     public List<ModuleNode<Node>> resolve() {
@@ -185,7 +379,7 @@ public class ModuleResolver<Node extends DependencyNode> {
     }
 
     private ModuleNode<Node> createModuleNode(String name) {
-        return new ModuleNode<>(name, moduleTree.get(name), resolvedNodes.get(name));
+        return new ModuleNode<>(name, moduleTree.get(name), new ArrayList<>(resolvedNodes.get(name)));
     }
 
 
@@ -0,0 +1,380 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * A {@link DependencyGraph} that can be updated one node at a time. Adding, replacing or removing a node patches the
+ * provider index and the cached dependencies of the nodes that require its namespaces, instead of compiling the whole
+ * graph again.
+ * <p>
+ * Every update returns a {@link Change} with the namespaces whose closure may now be different, and the nodes whose
+ * closure may now be different. Those are exactly the cached resolutions that need to be dropped, see
+ * {@link ClosureCache#invalidate(Collection)}.
+ * <p>
+ * When more than one node provides a namespace, the node that was added first is the provider; a replaced node keeps
+ * the position of the node it replaced. Lookups and updates are guarded by a read write lock. A resolve makes many
+ * lookups, so run it inside {@link #withReadLock(Supplier)} to keep updates from interleaving with it.
+ *
+ * @param <D> A extension of the dependency node.
+ */
+public class MutableDependencyGraph<D extends DependencyNode> implements DependencyGraph<D> {
+
+    private final ReadWriteLock lock;
+
+    private final Map<D, Indexed> nodes;
+
+    private final TreeMap<Long, D> order;
+
+    private final Map<String, TreeMap<Long, D>> providers;
+
+    private final Map<String, Set<D>> requirers;
+
+    private final Map<D, List<D>> dependencies;
+
+    private long sequence;
+
+    private volatile List<D> nodeList;
+
+    public MutableDependencyGraph() {
+        this.lock = new ReentrantReadWriteLock();
+        this.nodes = new HashMap<>();
+        this.order = new TreeMap<>();
+        this.providers = new HashMap<>();
+        this.requirers = new HashMap<>();
+        this.dependencies = new HashMap<>();
+    }
+
+    /**
+     * @param nodes The initial nodes, in order of priority.
+     */
+    public MutableDependencyGraph(final Collection<D> nodes) {
+        this();
+        if (nodes == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        nodes.forEach(this::addNode);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> getProvides(DependencyNode node) {
+        return node.getProvides();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> getRequires(DependencyNode node) {
+        return node.getRequires();
+    }
+
+    /**
+     * @param supplier Code to run while no update can happen.
+     * @param <T>      The result type.
+     * @return The result of the supplier.
+     */
+    public <T> T withReadLock(final Supplier<T> supplier) {
+        lock.readLock().lock();
+        try {
+            return supplier.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param runnable Updates to apply while no lookup can happen, such as several updates that belong together.
+     */
+    public void withWriteLock(final Runnable runnable) {
+        lock.writeLock().lock();
+        try {
+            runnable.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param node A node to add.
+     * @return The namespaces and nodes affected by the change.
+     */
+    public Change<D> addNode(final D node) {
+        if (node == null) {
+            throw DependencyException.cannotResolveNull();
+        }
+        lock.writeLock().lock();
+        try {
+            if (nodes.containsKey(node)) {
+                return new Change<>(Collections.emptySet(), Collections.emptySet());
+            }
+            final Map<String, D> before = currentProviders(getProvides(node));
+            insert(node, sequence++);
+            return changed(before, null, node);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param oldNode A node of the graph.
+     * @param newNode The node to put in its place. This can be the old node, to index it again after its provides
+     *                or requires changed.
+     * @return The namespaces and nodes affected by the change.
+     */
+    public Change<D> replaceNode(final D oldNode,
+                                 final D newNode) {
+        if (oldNode == null || newNode == null) {
+            throw DependencyException.cannotResolveNull();
+        }
+        lock.writeLock().lock();
+        try {
+            final Indexed indexed = nodes.get(oldNode);
+            if (indexed == null) {
+                throw DependencyException.notInGraph(oldNode);
+            }
+            final Set<String> namespaces = new LinkedHashSet<>(indexed.provides);
+            namespaces.addAll(getProvides(newNode));
+            final Map<String, D> before = currentProviders(namespaces);
+            delete(oldNode);
+            delete(newNode);
+            insert(newNode, indexed.position);
+            return changed(before, oldNode, newNode);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param node A node to remove.
+     * @return The namespaces and nodes affected by the change.
+     */
+    public Change<D> removeNode(final D node) {
+        if (node == null) {
+            throw DependencyException.cannotResolveNull();
+        }
+        lock.writeLock().lock();
+        try {
+            if (!nodes.containsKey(node)) {
+                return new Change<>(Collections.emptySet(), Collections.emptySet());
+            }
+            final Map<String, D> before = currentProviders(nodes.get(node).provides);
+            delete(node);
+            return changed(before, node, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<String, D> currentProviders(final Set<String> namespaces) {
+        final Map<String, D> result = new HashMap<>();
+        for (String namespace : namespaces) {
+            result.put(namespace, lookupProvider(namespace));
+        }
+        return result;
+    }
+
+    private void insert(final D node,
+                        final long position) {
+        final Indexed indexed = new Indexed(position, getProvides(node), getRequires(node));
+        nodes.put(node, indexed);
+        order.put(position, node);
+        for (String namespace : indexed.provides) {
+            providers.computeIfAbsent(namespace, n -> new TreeMap<>()).put(position, node);
+        }
+        for (String namespace : indexed.requires) {
+            requirers.computeIfAbsent(namespace, n -> new HashSet<>()).add(node);
+        }
+        nodeList = null;
+    }
+
+    private void delete(final D node) {
+        final Indexed indexed = nodes.remove(node);
+        if (indexed == null) {
+            return;
+        }
+        order.remove(indexed.position);
+        for (String namespace : indexed.provides) {
+            final TreeMap<Long, D> candidates = providers.get(namespace);
+            candidates.remove(indexed.position);
+            if (candidates.isEmpty()) {
+                providers.remove(namespace);
+            }
+        }
+        for (String namespace : indexed.requires) {
+            final Set<D> nodesRequiring = requirers.get(namespace);
+            nodesRequiring.remove(node);
+            if (nodesRequiring.isEmpty()) {
+                requirers.remove(namespace);
+            }
+        }
+        dependencies.remove(node);
+        nodeList = null;
+    }
+
+    /**
+     * Works out which namespaces changed provider, drops the cached dependencies of the nodes that require them and
+     * walks up the nodes that require them to find everything whose closure may have changed.
+     */
+    private Change<D> changed(final Map<String, D> before,
+                              final D oldNode,
+                              final D newNode) {
+        final Set<String> namespaces = new LinkedHashSet<>();
+        final Set<D> affectedNodes = new LinkedHashSet<>();
+        final ArrayDeque<String> queue = new ArrayDeque<>();
+        for (Map.Entry<String, D> entry : before.entrySet()) {
+            final D previous = entry.getValue(), current = lookupProvider(entry.getKey());
+            if (!Objects.equals(previous, current) || (current != null && current.equals(newNode))) {
+                namespaces.add(entry.getKey());
+                queue.add(entry.getKey());
+                if (!Objects.equals(previous, current)) {
+                    for (D node : requirers.getOrDefault(entry.getKey(), Collections.emptySet())) {
+                        dependencies.remove(node);
+                    }
+                }
+            }
+        }
+        if (newNode != null) {
+            affectedNodes.add(newNode);
+        }
+        while (!queue.isEmpty()) {
+            for (D node : requirers.getOrDefault(queue.poll(), Collections.emptySet())) {
+                if (affectedNodes.add(node)) {
+                    for (String namespace : nodes.get(node).provides) {
+                        if (node.equals(lookupProvider(namespace)) && namespaces.add(namespace)) {
+                            queue.add(namespace);
+                        }
+                    }
+                }
+            }
+        }
+        if (oldNode != null && !oldNode.equals(newNode)) {
+            affectedNodes.remove(oldNode);
+        }
+        return new Change<>(namespaces, affectedNodes);
+    }
+
+    private D lookupProvider(final String namespace) {
+        final TreeMap<Long, D> candidates = providers.get(namespace);
+        return candidates == null ? null : candidates.firstEntry().getValue();
+    }
+
+    private List<D> lookupDependencies(final D node) {
+        final Indexed indexed = nodes.get(node);
+        final Set<String> requires = indexed != null ? indexed.requires : getRequires(node);
+        final List<D> result = new ArrayList<>(requires.size());
+        for (String namespace : requires) {
+            final D provider = lookupProvider(namespace);
+            if (provider == null) {
+                throw DependencyException.nothingProvides(namespace);
+            }
+            result.add(provider);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return A snapshot of the nodes, in order of priority. The snapshot is taken once per update and shared until
+     * the next one, so it does not change when the graph does.
+     */
+    @Override
+    public Collection<D> getNodes() {
+        final List<D> cached = nodeList;
+        if (cached != null) {
+            return cached;
+        }
+        return withReadLock(() -> {
+            final List<D> snapshot = Collections.unmodifiableList(new ArrayList<>(order.values()));
+            nodeList = snapshot;
+            return snapshot;
+        });
+    }
+
+    @Override
+    public boolean containsNode(final D node) {
+        return withReadLock(() -> nodes.containsKey(node));
+    }
+
+    @Override
+    public D getProvider(final String namespace) {
+        return withReadLock(() -> lookupProvider(namespace));
+    }
+
+    @Override
+    public List<D> getDependencies(final D node) throws DependencyException {
+        lock.readLock().lock();
+        try {
+            synchronized (dependencies) {
+                final List<D> cached = dependencies.get(node);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            final List<D> resolved = lookupDependencies(node);
+            if (nodes.containsKey(node)) {
+                synchronized (dependencies) {
+                    dependencies.put(node, resolved);
+                }
+            }
+            return resolved;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The namespaces a node was indexed under, kept so that it can be removed again even if the node changed.
+     */
+    private static class Indexed {
+
+        private final long position;
+
+        private final Set<String> provides, requires;
+
+        private Indexed(final long position,
+                        final Set<String> provides,
+                        final Set<String> requires) {
+            this.position = position;
+            this.provides = new LinkedHashSet<>(provides);
+            this.requires = new LinkedHashSet<>(requires);
+        }
+    }
+
+    /**
+     * The effect of one update.
+     *
+     * @param <D> A extension of the dependency node.
+     */
+    public static class Change<D> {
+
+        private final Set<String> affectedNamespaces;
+
+        private final Set<D> affectedNodes;
+
+        private Change(final Set<String> affectedNamespaces,
+                       final Set<D> affectedNodes) {
+            this.affectedNamespaces = Collections.unmodifiableSet(affectedNamespaces);
+            this.affectedNodes = Collections.unmodifiableSet(affectedNodes);
+        }
+
+        /**
+         * @return The namespaces whose closure may have changed: the namespaces that changed provider or whose
+         * provider changed, and every namespace that depends on one of them.
+         */
+        public Set<String> getAffectedNamespaces() {
+            return affectedNamespaces;
+        }
+
+        /**
+         * @return The nodes of the graph whose closure may have changed, usable as the entry points to resolve again.
+         */
+        public Set<D> getAffectedNodes() {
+            return affectedNodes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("MutableDependencyGraph.Change{namespaces=%s, nodes=%s}", affectedNamespaces,
+                                 affectedNodes);
+        }
+    }
+}
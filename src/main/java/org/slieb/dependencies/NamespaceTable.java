@@ -0,0 +1,115 @@
+package org.slieb.dependencies;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A symbol table that gives every namespace a dense int id. Nodes that are created through the same table share one
+ * string per namespace and can compare namespaces by id, see {@link CompactDependencyNode} and
+ * {@link InternedDependencyGraph}.
+ * <p>
+ * Ids are handed out in the order namespaces are first interned and are never reused. The table is thread safe, so
+ * a {@link ParallelDependencyParser} can intern from many threads.
+ */
+public final class NamespaceTable {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ConcurrentHashMap<String, Integer> ids;
+
+    private volatile String[] namespaces;
+
+    private int size;
+
+    public NamespaceTable() {
+        this.ids = new ConcurrentHashMap<>();
+        this.namespaces = new String[64];
+    }
+
+    /**
+     * @param namespace A namespace.
+     * @return The id of the namespace, which is assigned if the namespace is new.
+     */
+    public int intern(final String namespace) {
+        if (namespace == null) {
+            throw new IllegalArgumentException("cannot intern a null namespace");
+        }
+        final Integer id = ids.get(namespace);
+        return id != null ? id : add(namespace);
+    }
+
+    private synchronized int add(final String namespace) {
+        final Integer existing = ids.get(namespace);
+        if (existing != null) {
+            return existing;
+        }
+        String[] table = namespaces;
+        if (size == table.length) {
+            table = Arrays.copyOf(table, size * 2);
+        }
+        table[size] = namespace;
+        namespaces = table;
+        ids.put(namespace, size);
+        return size++;
+    }
+
+    /**
+     * @param namespaces Namespaces.
+     * @return The ids of the namespaces, sorted and without duplicates.
+     */
+    public int[] internAll(final Collection<String> namespaces) {
+        if (namespaces.isEmpty()) {
+            return EMPTY;
+        }
+        final int[] result = new int[namespaces.size()];
+        int count = 0;
+        for (String namespace : namespaces) {
+            result[count++] = intern(namespace);
+        }
+        Arrays.sort(result);
+        int unique = 1;
+        for (int i = 1; i < count; i++) {
+            if (result[i] != result[unique - 1]) {
+                result[unique++] = result[i];
+            }
+        }
+        return unique == result.length ? result : Arrays.copyOf(result, unique);
+    }
+
+    /**
+     * @param namespace A namespace.
+     * @return The id of the namespace, or -1 if it was never interned.
+     */
+    public int getId(final Object namespace) {
+        final Integer id = namespace == null ? null : ids.get(namespace);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @param id An id handed out by this table.
+     * @return The namespace of the id.
+     */
+    public String getNamespace(final int id) {
+        final String[] table = namespaces;
+        if (id < 0 || id >= table.length || table[id] == null) {
+            throw new IllegalArgumentException(String.format("%d is not a namespace id", id));
+        }
+        return table[id];
+    }
+
+    /**
+     * @return The number of interned namespaces, which is one more than the highest id.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param <R> The resource type.
+     * @return A factory of compact nodes that intern through this table, for a {@link CachingDependencyParser}.
+     */
+    public <R> DependencyNodeFactory<R, CompactDependencyNode<R>> nodeFactory() {
+        return (resource, provides, requires) -> CompactDependencyNode.create(this, resource, provides, requires);
+    }
+}
@@ -0,0 +1,133 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link BatchDependencyParser} that parses resources concurrently on an {@link Executor}. Any executor can be
+ * used, such as a {@link ForkJoinPool}, a fixed thread pool, or a virtual thread per task executor on newer JDKs.
+ * <p>
+ * At most {@code maxInFlight} resources are parsed at the same time. A resource that fails to parse does not stop
+ * the rest of the batch; once every resource has been attempted the failures are passed to the failure handler, or
+ * thrown together as a single {@link DependencyException} if there is no handler. Either way they are reported to the
+ * caller of {@link #parseAll(Iterable, BiConsumer)} first.
+ *
+ * @param <R> The resource type.
+ * @param <D> The dependency node type.
+ */
+public class ParallelDependencyParser<R, D extends DependencyNode<R>> implements BatchDependencyParser<R, D> {
+
+    private final DependencyParser<R, D> parser;
+
+    private final Executor executor;
+
+    private final int maxInFlight;
+
+    private final BiConsumer<R, RuntimeException> failureHandler;
+
+    /**
+     * @param parser         The parser to run for each resource.
+     * @param executor       The executor that runs the parses.
+     * @param maxInFlight    The maximum number of parses that run at the same time.
+     * @param failureHandler Receives every resource that failed to parse. Failed resources are left out of the result.
+     *                       If null, the failures are thrown as a {@link DependencyException}.
+     */
+    public ParallelDependencyParser(final DependencyParser<R, D> parser,
+                                    final Executor executor,
+                                    final int maxInFlight,
+                                    final BiConsumer<R, RuntimeException> failureHandler) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.parser = parser;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.failureHandler = failureHandler;
+    }
+
+    public ParallelDependencyParser(final DependencyParser<R, D> parser,
+                                    final Executor executor,
+                                    final int maxInFlight) {
+        this(parser, executor, maxInFlight, null);
+    }
+
+    public ParallelDependencyParser(final DependencyParser<R, D> parser) {
+        this(parser, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism() * 2);
+    }
+
+    @Override
+    public D parse(final R resource) {
+        return parser.parse(resource);
+    }
+
+    @Override
+    public Map<R, D> parseAll(final Iterable<R> resources) throws DependencyException {
+        return parseAll(resources, (resource, failure) -> {
+        });
+    }
+
+    @Override
+    public Map<R, D> parseAll(final Iterable<R> resources,
+                              final BiConsumer<? super R, ? super Throwable> onFailure)
+            throws DependencyException {
+        final List<R> batch = new ArrayList<>();
+        resources.forEach(batch::add);
+
+        final Object[] nodes = new Object[batch.size()];
+        final RuntimeException[] failures = new RuntimeException[batch.size()];
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            final int index = i;
+            acquire(inFlight);
+            try {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        nodes[index] = parser.parse(batch.get(index));
+                    } catch (RuntimeException exception) {
+                        failures[index] = exception;
+                    } finally {
+                        inFlight.release();
+                    }
+                }, executor));
+            } catch (RuntimeException rejected) {
+                inFlight.release();
+                failures[index] = rejected;
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+
+        final Map<R, D> result = new LinkedHashMap<>();
+        final Map<R, RuntimeException> failed = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures[i] != null) {
+                failed.put(batch.get(i), failures[i]);
+            } else {
+                @SuppressWarnings("unchecked")
+                final D node = (D) nodes[i];
+                result.put(batch.get(i), node);
+            }
+        }
+        if (!failed.isEmpty()) {
+            failed.forEach(onFailure);
+            if (failureHandler == null) {
+                throw DependencyException.parseFailures(failed);
+            }
+            failed.forEach(failureHandler);
+        }
+        return result;
+    }
+
+    private static void acquire(final Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw DependencyException.interrupted(e);
+        }
+    }
+}
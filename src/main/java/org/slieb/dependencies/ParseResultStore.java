@@ -0,0 +1,296 @@
+package org.slieb.dependencies;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A bounded on-disk store of the provides and requires parsed from a resource, keyed by bytes that identify the
+ * resource's content, such as a content hash.
+ * <p>
+ * The store is a single append only file. Opening it reads every record into memory; a new record is appended to the
+ * end of the file. When the records add up to more than the maximum size, the least recently used ones are evicted,
+ * and once the file holds twice as many bytes as the live records it is rewritten with only the live records, oldest
+ * first, so recency survives a restart. A record that was cut short by a crash is dropped when the file is opened.
+ * <p>
+ * A record whose lengths do not fit in the rest of the file is treated as the end of the valid data, like a record
+ * that was cut short.
+ * <p>
+ * The store holds an exclusive lock on a {@code .lock} file next to the store file while it is open, so processes
+ * that share a store file take turns: opening a store that another process has open waits until that process closes
+ * it. Within one process, open a store file only once.
+ * <p>
+ * The file starts with a version string chosen by the caller. Opening a store with a different version discards every
+ * record, so bumping the version when the parser changes keeps stale results from being used.
+ */
+public class ParseResultStore implements Closeable {
+
+    private static final int MAGIC = 0x50525354;
+
+    private static final int FORMAT = 1;
+
+    private final Path file;
+
+    private final String version;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<ByteBuffer, Record> records;
+
+    private FileChannel channel;
+
+    private FileLock lock;
+
+    private long liveBytes, fileBytes;
+
+    private ParseResultStore(final Path file,
+                             final String version,
+                             final long maxBytes) {
+        this.file = file;
+        this.version = version;
+        this.maxBytes = maxBytes;
+        this.records = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param file     The store file. It is created if it does not exist.
+     * @param version  The version of the parse results, usually the version of the parser.
+     * @param maxBytes The maximum size of the live records, in bytes.
+     * @return The opened store.
+     * @throws IOException If the file cannot be read or written.
+     */
+    public static ParseResultStore open(final Path file,
+                                        final String version,
+                                        final long maxBytes) throws IOException {
+        final ParseResultStore store = new ParseResultStore(file, version, maxBytes);
+        final FileChannel lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+                                                         StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            store.lock = lockChannel.lock();
+            store.load();
+        } catch (IOException | RuntimeException exception) {
+            lockChannel.close();
+            throw exception;
+        }
+        return store;
+    }
+
+    private void load() throws IOException {
+        long valid = 0;
+        if (Files.exists(file)) {
+            final byte[] bytes = Files.readAllBytes(file);
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            try {
+                if (in.readInt() == MAGIC && in.readInt() == FORMAT && in.readUTF().equals(version)) {
+                    valid = bytes.length - in.available();
+                    while (in.available() > 0) {
+                        final byte[] key = new byte[readLength(in, 1)];
+                        in.readFully(key);
+                        final Set<String> provides = readNamespaces(in), requires = readNamespaces(in);
+                        final long end = bytes.length - in.available();
+                        store(ByteBuffer.wrap(key), new Record(provides, requires, end - valid));
+                        valid = end;
+                    }
+                }
+            } catch (EOFException | UTFDataFormatException exception) {
+                // a record that was cut short; everything before it is kept.
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+        if (valid == 0) {
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(header()), 0);
+            fileBytes = channel.size();
+        } else {
+            channel.truncate(valid);
+            fileBytes = valid;
+        }
+        channel.position(fileBytes);
+        evict();
+    }
+
+    private byte[] header() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeUTF(version);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a length and checks it against what is left of the file, so a corrupt length ends the valid data instead
+     * of allocating a huge array.
+     *
+     * @param unit The least number of bytes one unit of the length takes up.
+     */
+    private static int readLength(final DataInputStream in,
+                                  final int unit) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > in.available() / unit) {
+            throw new EOFException(String.format("a length of %d does not fit the file", length));
+        }
+        return length;
+    }
+
+    private static Set<String> readNamespaces(final DataInputStream in) throws IOException {
+        final int count = readLength(in, 2);
+        final Set<String> namespaces = new LinkedHashSet<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            namespaces.add(in.readUTF());
+        }
+        return Collections.unmodifiableSet(namespaces);
+    }
+
+    private static void writeNamespaces(final DataOutputStream out,
+                                        final Set<String> namespaces) throws IOException {
+        out.writeInt(namespaces.size());
+        for (String namespace : namespaces) {
+            out.writeUTF(namespace);
+        }
+    }
+
+    private static byte[] encode(final ByteBuffer key,
+                                 final Record record) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(key.remaining());
+        out.write(key.array(), key.arrayOffset() + key.position(), key.remaining());
+        writeNamespaces(out, record.provides);
+        writeNamespaces(out, record.requires);
+        return bytes.toByteArray();
+    }
+
+    private void store(final ByteBuffer key,
+                       final Record record) {
+        final Record previous = records.put(key, record);
+        if (previous != null) {
+            liveBytes -= previous.bytes;
+        }
+        liveBytes += record.bytes;
+    }
+
+    private void evict() throws IOException {
+        final Iterator<Record> iterator = records.values().iterator();
+        while (liveBytes > maxBytes && iterator.hasNext()) {
+            liveBytes -= iterator.next().bytes;
+            iterator.remove();
+        }
+        if (fileBytes > 2 * Math.max(liveBytes, 1024)) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the file with only the live records, least recently used first.
+     */
+    private void compact() throws IOException {
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+            out.write(header());
+            for (Map.Entry<ByteBuffer, Record> entry : records.entrySet()) {
+                out.write(encode(entry.getKey(), entry.getValue()));
+            }
+        }
+        channel.close();
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileBytes = channel.size();
+        channel.position(fileBytes);
+    }
+
+    /**
+     * @param key The key of a resource's content.
+     * @return The stored result, or null if there is none.
+     */
+    public synchronized Record get(final byte[] key) {
+        return records.get(ByteBuffer.wrap(key));
+    }
+
+    /**
+     * @param key      The key of a resource's content.
+     * @param provides The namespaces the resource provides.
+     * @param requires The namespaces the resource requires.
+     */
+    public synchronized void put(final byte[] key,
+                                 final Set<String> provides,
+                                 final Set<String> requires) {
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(key.clone());
+            final byte[] encoded = encode(buffer, new Record(provides, requires, 0));
+            final Record record = new Record(new LinkedHashSet<>(provides), new LinkedHashSet<>(requires),
+                                             encoded.length);
+            channel.write(ByteBuffer.wrap(encoded));
+            fileBytes += encoded.length;
+            store(buffer, record);
+            evict();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * @return The number of stored results.
+     */
+    public synchronized int size() {
+        return records.size();
+    }
+
+    /**
+     * @return The size of the stored results, in bytes.
+     */
+    public synchronized long getByteSize() {
+        return liveBytes;
+    }
+
+    /**
+     * Forces the appended records to disk.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            lock.channel().close();
+        }
+    }
+
+    /**
+     * The provides and requires stored for one resource content.
+     */
+    public static class Record {
+
+        private final Set<String> provides, requires;
+
+        private final long bytes;
+
+        private Record(final Set<String> provides,
+                       final Set<String> requires,
+                       final long bytes) {
+            this.provides = Collections.unmodifiableSet(provides);
+            this.requires = Collections.unmodifiableSet(requires);
+            this.bytes = bytes;
+        }
+
+        public Set<String> getProvides() {
+            return provides;
+        }
+
+        public Set<String> getRequires() {
+            return requires;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A reachability index over the dense node ids of a {@link CompactDependencyGraph}. The closure of every namespace is
+ * computed lazily, once, and kept both as a {@link BitSet} and in resolution order. Asking which nodes a set of entry
+ * points needs is then a word-wise OR of their closures.
+ * <p>
+ * An ordered resolve merges the ordered closures of the entry points, in iteration order, and uses a BitSet to skip
+ * nodes that are already placed. That gives exactly the order {@link ConcurrentDependencyResolver#resolveNamespaces}
+ * gives. A filtered pass over one global topological order cannot do that, because the order of a depth first resolve
+ * depends on which entry point reaches a node first.
+ * <p>
+ * The index is immutable apart from its memoized closures and is safe to share between threads. The BitSets a resolve
+ * works in are kept per thread and cleared bit by bit afterwards, so a resolve costs the size of its closures and
+ * not the size of the graph.
+ * <p>
+ * Lookups of memoized closures are reported as closure cache hits and misses to the listener of the resolver, and
+ * every closure that is computed as a resolve.
+ *
+ * @param <D> A extension of the dependency node.
+ */
+public class ReachabilityIndex<D extends DependencyNode<?>> {
+
+    private final DependencyGraph<D> dependencyGraph;
+
+    private final CompactDependencyGraph<D> compactGraph;
+
+    private final List<D> baseList;
+
+    private final BitSet baseIds;
+
+    private final ConcurrentHashMap<Integer, Closure> closures;
+
+    private final ThreadLocal<BitSet> resolvedScratch, placedScratch;
+
+    private final DependencyListener listener;
+
+    /**
+     * @param resolver The resolver whose graph and base list are indexed.
+     */
+    public ReachabilityIndex(final ConcurrentDependencyResolver<D> resolver) {
+        this.dependencyGraph = resolver.getDependencyGraph();
+        this.compactGraph = CompactDependencyGraph.fromDependencyGraph(dependencyGraph);
+        this.baseList = resolver.getBaseList();
+        this.baseIds = new BitSet();
+        for (D node : baseList) {
+            final int id = compactGraph.getId(node);
+            if (id != -1) {
+                baseIds.set(id);
+            }
+        }
+        this.closures = new ConcurrentHashMap<>();
+        this.resolvedScratch = ThreadLocal.withInitial(BitSet::new);
+        this.placedScratch = ThreadLocal.withInitial(BitSet::new);
+        this.listener = resolver.getListener();
+    }
+
+    public CompactDependencyGraph<D> getCompactGraph() {
+        return compactGraph;
+    }
+
+    int getId(final String namespace) throws DependencyException {
+        final D node = dependencyGraph.getProvider(namespace);
+        if (node == null) {
+            throw DependencyException.nothingProvides(namespace);
+        }
+        return compactGraph.getId(node);
+    }
+
+    private Closure closure(final String namespace) throws DependencyException {
+        final int id = getId(namespace);
+        final Closure closure = closures.get(id);
+        if (closure != null) {
+            listener.closureCacheHit(namespace);
+            return closure;
+        }
+        listener.closureCacheMiss(namespace);
+        return resolveClosure(id);
+    }
+
+    private Closure resolveClosure(final int id) throws DependencyException {
+        final long start = DependencyListener.start(listener);
+        final BitSet resolved = resolvedScratch.get();
+        resolved.or(baseIds);
+        final int[] ordered;
+        try {
+            ordered = compactGraph.resolveIds(new int[]{id}, resolved);
+        } catch (DependencyException exception) {
+            resolved.clear();
+            DependencyListener.end(listener, DependencyListener.Phase.RESOLVE, start);
+            throw exception;
+        }
+        for (int node : ordered) {
+            resolved.clear(node);
+        }
+        resolved.andNot(baseIds);
+        final BitSet reachable = new BitSet();
+        long edges = 0;
+        for (int node : ordered) {
+            reachable.set(node);
+            edges += compactGraph.getDependencyCount(node);
+        }
+        listener.resolved(ordered.length, edges);
+        DependencyListener.end(listener, DependencyListener.Phase.RESOLVE, start);
+        final Closure closure = new Closure(ordered, reachable);
+        final Closure previous = closures.putIfAbsent(id, closure);
+        return previous == null ? closure : previous;
+    }
+
+    /**
+     * @param namespace A namespace.
+     * @return The ids of the nodes the namespace needs on top of the base list. The returned set must not be modified.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public BitSet getClosure(final String namespace) throws DependencyException {
+        return closure(namespace).reachable;
+    }
+
+    /**
+     * @param namespaces A collection of namespaces.
+     * @return The ids of every node the namespaces need on top of the base list.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public BitSet getClosure(final Collection<String> namespaces) throws DependencyException {
+        final BitSet result = new BitSet();
+        for (String namespace : namespaces) {
+            result.or(getClosure(namespace));
+        }
+        return result;
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return The same list {@link ConcurrentDependencyResolver#resolveNamespaces(Collection)} returns.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public List<D> resolveNamespaces(final Collection<String> namespaces) throws DependencyException {
+        if (namespaces == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final BitSet placed = placedScratch.get();
+        final List<D> result = new ArrayList<>(baseList);
+        final List<Closure> merged = new ArrayList<>(namespaces.size());
+        try {
+            for (String namespace : namespaces) {
+                final Closure closure = closure(namespace);
+                if (closure.ordered.length == 0 || placed.get(closure.ordered[closure.ordered.length - 1])) {
+                    continue;
+                }
+                merged.add(closure);
+                for (int id : closure.ordered) {
+                    if (!placed.get(id)) {
+                        placed.set(id);
+                        result.add(compactGraph.getNode(id));
+                    }
+                }
+            }
+        } finally {
+            for (Closure closure : merged) {
+                for (int id : closure.ordered) {
+                    placed.clear(id);
+                }
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static class Closure {
+
+        private final int[] ordered;
+
+        private final BitSet reachable;
+
+        private Closure(final int[] ordered,
+                        final BitSet reachable) {
+            this.ordered = ordered;
+            this.reachable = reachable;
+        }
+    }
+}
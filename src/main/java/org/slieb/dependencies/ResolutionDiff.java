@@ -0,0 +1,252 @@
+package org.slieb.dependencies;
+
+import java.util.*;
+
+/**
+ * The difference between two resolutions of the same entry points, as an edit script that turns the previous list
+ * into the current one with as few moves as possible. A bundler can patch its concatenated output and source map with
+ * it instead of writing the whole bundle again.
+ * <p>
+ * Every node of the previous list gets its index as a dense id, and every current node is mapped to the id it had.
+ * Nodes without an id were inserted, ids that are not mapped to were removed. Of the nodes in both lists, the longest
+ * run that is still in the same relative order stays where it is and every other one is moved; that run is a longest
+ * increasing subsequence of the ids, found in O(n log n).
+ * <p>
+ * The edits are the removes, in previous order, followed by the inserts and moves, in current order. Removing the
+ * removed and moved nodes from the previous list and then placing every inserted and moved node at its current index
+ * gives the current list, see {@link #apply(List)}.
+ *
+ * @param <N> The node type.
+ */
+public class ResolutionDiff<N> {
+
+    private final List<Edit<N>> edits;
+
+    private final int[] previousIndexes;
+
+    private final int removed, inserted, moved;
+
+    private ResolutionDiff(final List<Edit<N>> edits,
+                           final int[] previousIndexes,
+                           final int removed,
+                           final int inserted,
+                           final int moved) {
+        this.edits = Collections.unmodifiableList(edits);
+        this.previousIndexes = previousIndexes;
+        this.removed = removed;
+        this.inserted = inserted;
+        this.moved = moved;
+    }
+
+    /**
+     * @param previous The previous resolution.
+     * @param current  The current resolution.
+     * @param <N>      The node type.
+     * @return The difference between them.
+     * @throws IllegalArgumentException If a node appears twice in one of the lists.
+     */
+    public static <N> ResolutionDiff<N> between(final List<N> previous,
+                                                final List<N> current) {
+        if (previous == null || current == null) {
+            throw DependencyException.cannotResolveANullCollection();
+        }
+        final Map<N, Integer> ids = new HashMap<>(previous.size() * 2);
+        for (N node : previous) {
+            if (ids.put(node, ids.size()) != null) {
+                throw new IllegalArgumentException(String.format("%s appears more than once", node));
+            }
+        }
+        final int[] previousIndexes = new int[current.size()];
+        final boolean[] kept = new boolean[previous.size()];
+        for (int i = 0; i < current.size(); i++) {
+            final Integer id = ids.get(current.get(i));
+            previousIndexes[i] = id == null ? -1 : id;
+            if (id != null) {
+                if (kept[id]) {
+                    throw new IllegalArgumentException(String.format("%s appears more than once", current.get(i)));
+                }
+                kept[id] = true;
+            }
+        }
+        final boolean[] stays = longestIncreasingRun(previousIndexes);
+
+        final List<Edit<N>> edits = new ArrayList<>();
+        final boolean[] moves = new boolean[previous.size()];
+        int moved = 0, inserted = 0;
+        for (int i = 0; i < current.size(); i++) {
+            if (previousIndexes[i] != -1 && !stays[i]) {
+                moves[previousIndexes[i]] = true;
+            }
+        }
+        for (int id = 0; id < previous.size(); id++) {
+            if (!kept[id]) {
+                edits.add(new Edit<>(Edit.Type.REMOVE, previous.get(id), id, -1));
+            }
+        }
+        final int removed = edits.size();
+        for (int i = 0; i < current.size(); i++) {
+            if (previousIndexes[i] == -1) {
+                edits.add(new Edit<>(Edit.Type.INSERT, current.get(i), -1, i));
+                inserted++;
+            } else if (moves[previousIndexes[i]]) {
+                edits.add(new Edit<>(Edit.Type.MOVE, current.get(i), previousIndexes[i], i));
+                moved++;
+            }
+        }
+        return new ResolutionDiff<>(edits, previousIndexes, removed, inserted, moved);
+    }
+
+    /**
+     * Patience sorting over the ids, skipping inserted positions, with back links to recover one longest run.
+     *
+     * @return For every current position, whether its node is part of the run.
+     */
+    private static boolean[] longestIncreasingRun(final int[] ids) {
+        final int[] tails = new int[ids.length];
+        final int[] links = new int[ids.length];
+        int length = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == -1) {
+                continue;
+            }
+            int low = 0, high = length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (ids[tails[middle]] < ids[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            links[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        final boolean[] run = new boolean[ids.length];
+        for (int i = length > 0 ? tails[length - 1] : -1; i != -1; i = links[i]) {
+            run[i] = true;
+        }
+        return run;
+    }
+
+    /**
+     * @return The edits, removes first.
+     */
+    public List<Edit<N>> getEdits() {
+        return edits;
+    }
+
+    /**
+     * @return True if the resolutions are the same.
+     */
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    public int getRemovedCount() {
+        return removed;
+    }
+
+    public int getInsertedCount() {
+        return inserted;
+    }
+
+    public int getMovedCount() {
+        return moved;
+    }
+
+    /**
+     * @param currentIndex An index of the current list.
+     * @return The index the node had in the previous list, or -1 if it was inserted.
+     */
+    public int getPreviousIndex(final int currentIndex) {
+        return previousIndexes[currentIndex];
+    }
+
+    /**
+     * @param previous The previous resolution.
+     * @return The current resolution, rebuilt from the previous one and the edits.
+     */
+    public List<N> apply(final List<N> previous) {
+        final boolean[] taken = new boolean[previous.size()];
+        for (Edit<N> edit : edits) {
+            if (edit.getType() != Edit.Type.INSERT) {
+                taken[edit.getPreviousIndex()] = true;
+            }
+        }
+        final List<N> result = new ArrayList<>(previousIndexes.length);
+        for (int id = 0; id < previous.size(); id++) {
+            if (!taken[id]) {
+                result.add(previous.get(id));
+            }
+        }
+        for (Edit<N> edit : edits) {
+            if (edit.getType() != Edit.Type.REMOVE) {
+                result.add(edit.getCurrentIndex(), edit.getNode());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResolutionDiff{removed=%d, inserted=%d, moved=%d}", removed, inserted, moved);
+    }
+
+    /**
+     * One step of the edit script.
+     *
+     * @param <N> The node type.
+     */
+    public static class Edit<N> {
+
+        public enum Type {
+            REMOVE, INSERT, MOVE
+        }
+
+        private final Type type;
+
+        private final N node;
+
+        private final int previousIndex, currentIndex;
+
+        private Edit(final Type type,
+                     final N node,
+                     final int previousIndex,
+                     final int currentIndex) {
+            this.type = type;
+            this.node = node;
+            this.previousIndex = previousIndex;
+            this.currentIndex = currentIndex;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public N getNode() {
+            return node;
+        }
+
+        /**
+         * @return The index of the node in the previous list, or -1 for an insert.
+         */
+        public int getPreviousIndex() {
+            return previousIndex;
+        }
+
+        /**
+         * @return The index of the node in the current list, or -1 for a remove.
+         */
+        public int getCurrentIndex() {
+            return currentIndex;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s %d -> %d", type, node, previousIndex, currentIndex);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.slieb.dependencies;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Decides whether a resource has changed since it was last parsed. A resource is considered changed when its
+ * fingerprint is not equal to the fingerprint taken when it was parsed.
+ *
+ * @param <R> The resource type.
+ */
+@FunctionalInterface
+public interface ResourceChangeDetector<R> {
+
+    /**
+     * @param resource A resource.
+     * @return A value that changes whenever the resource changes. It must implement equals and hashCode.
+     */
+    Object getFingerprint(R resource);
+
+    /**
+     * @return A detector that compares the last modified time of files.
+     */
+    static ResourceChangeDetector<Path> lastModified() {
+        return path -> {
+            try {
+                return Files.getLastModifiedTime(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * @return A detector that compares the size of files.
+     */
+    static ResourceChangeDetector<Path> size() {
+        return path -> {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * @return A detector that compares both the last modified time and the size of files.
+     */
+    static ResourceChangeDetector<Path> lastModifiedAndSize() {
+        final ResourceChangeDetector<Path> lastModified = lastModified(), size = size();
+        return path -> Arrays.asList(lastModified.getFingerprint(path), size.getFingerprint(path));
+    }
+
+    /**
+     * @return A detector that compares the path, the last modified time and the size of files. Unlike
+     * {@link #lastModifiedAndSize()}, its fingerprints also tell different files apart.
+     */
+    static ResourceChangeDetector<Path> pathLastModifiedAndSize() {
+        final ResourceChangeDetector<Path> lastModified = lastModified(), size = size();
+        return path -> Arrays.asList(path.toAbsolutePath().normalize(), lastModified.getFingerprint(path),
+                                     size.getFingerprint(path));
+    }
+
+    /**
+     * @return A detector that compares a SHA-256 hash of the file contents.
+     */
+    static ResourceChangeDetector<Path> contentHash() {
+        return path -> {
+            try (InputStream inputStream = Files.newInputStream(path);
+                 DigestInputStream digestStream = new DigestInputStream(inputStream,
+                                                                        MessageDigest.getInstance("SHA-256"))) {
+                final byte[] buffer = new byte[8192];
+                while (digestStream.read(buffer) != -1) {
+                    // read to the end to update the digest.
+                }
+                return ByteBuffer.wrap(digestStream.getMessageDigest().digest());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+}
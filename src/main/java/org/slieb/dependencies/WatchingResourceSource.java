@@ -0,0 +1,440 @@
+package org.slieb.dependencies;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * A live set of source files under a number of root directories, kept parsed in a {@link MutableDependencyGraph}.
+ * <p>
+ * The roots are scanned and parsed once. After that a {@link WatchService} reports created, modified and deleted
+ * files, and a background thread collects the events until the roots have been quiet for the debounce interval, so a
+ * burst of events from an editor save or a git checkout is applied as one update. A stream of events that never goes
+ * quiet is cut into batches of at most the maximum wait. Only the created and modified files
+ * are parsed again, and the changes are applied to the graph in place; a {@link ClosureCache} only loses the closures
+ * the changed files affect. A query after a single file edit therefore resolves against an up to date graph without
+ * touching the rest of the tree. A failure while applying a batch, including one thrown by a change listener, is
+ * passed to the failure handler and the watcher carries on with the next path.
+ * <p>
+ * The source is also an {@link Iterable} of the current files, so it can be handed to a {@link DependencyCalculator}.
+ *
+ * @param <D> The dependency node type.
+ */
+public class WatchingResourceSource<D extends DependencyNode<Path>> implements Iterable<Path>, Closeable {
+
+    private final List<Path> roots;
+
+    private final Predicate<Path> filter;
+
+    private final DependencyParser<Path, D> parser;
+
+    private final long debounceMillis, maxWaitMillis;
+
+    private final BiConsumer<Path, RuntimeException> failureHandler;
+
+    private final ClosureCache<D> closureCache;
+
+    private final Map<Path, D> files;
+
+    private final MutableDependencyGraph<D> dependencyGraph;
+
+    private final ConcurrentDependencyResolver<D> resolver;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> directories;
+
+    /**
+     * The directories with a valid watch key, and the directories whose key was cancelled but whose deletion has not
+     * been applied yet. Both are guarded by {@link #directories}.
+     */
+    private final Set<Path> watchedDirectories, deletedDirectories;
+
+    private final List<Consumer<MutableDependencyGraph.Change<D>>> changeListeners;
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    /**
+     * Scans and parses the roots and starts watching them.
+     *
+     * @param roots          The directories to watch, including their subdirectories.
+     * @param filter         Selects the source files.
+     * @param parser         Parses a source file.
+     * @param debounceMillis How long the roots must be quiet before the collected changes are applied.
+     * @param maxWaitMillis  How long changes are collected at most before they are applied, even if the roots are not
+     *                       quiet yet.
+     * @param failureHandler Receives files that fail to parse, which are left out of the graph until they parse, and
+     *                       any other failure while applying changes, with the path it happened at or null.
+     * @param closureCache   A cache that queries are answered from, or null.
+     * @throws IOException If the roots cannot be scanned or watched.
+     */
+    public WatchingResourceSource(final Collection<Path> roots,
+                                  final Predicate<Path> filter,
+                                  final DependencyParser<Path, D> parser,
+                                  final long debounceMillis,
+                                  final long maxWaitMillis,
+                                  final BiConsumer<Path, RuntimeException> failureHandler,
+                                  final ClosureCache<D> closureCache) throws IOException {
+        if (roots.isEmpty()) {
+            throw new IllegalArgumentException("at least one root is needed");
+        }
+        if (maxWaitMillis < debounceMillis) {
+            throw new IllegalArgumentException("maxWaitMillis must be at least debounceMillis");
+        }
+        this.roots = roots.stream().map(root -> root.toAbsolutePath().normalize()).collect(Collectors.toList());
+        this.filter = filter;
+        this.parser = parser;
+        this.debounceMillis = debounceMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.failureHandler = failureHandler;
+        this.closureCache = closureCache;
+        this.files = new ConcurrentHashMap<>();
+        this.dependencyGraph = new MutableDependencyGraph<>();
+        this.resolver = new ConcurrentDependencyResolver<>(dependencyGraph);
+        this.directories = new HashMap<>();
+        this.watchedDirectories = new HashSet<>();
+        this.deletedDirectories = new HashSet<>();
+        this.changeListeners = new CopyOnWriteArrayList<>();
+        this.watchService = this.roots.get(0).getFileSystem().newWatchService();
+        try {
+            final Set<String> affected = new HashSet<>();
+            for (Path root : this.roots) {
+                scan(root, affected);
+            }
+        } catch (IOException | RuntimeException exception) {
+            watchService.close();
+            throw exception;
+        }
+        this.thread = new Thread(this::run, "dependency-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Collects changes for at most twenty times the debounce interval.
+     *
+     * @param roots          The directories to watch, including their subdirectories.
+     * @param filter         Selects the source files.
+     * @param parser         Parses a source file.
+     * @param debounceMillis How long the roots must be quiet before the collected changes are applied.
+     * @param failureHandler Receives files that fail to parse, and any other failure while applying changes.
+     * @param closureCache   A cache that queries are answered from, or null.
+     * @throws IOException If the roots cannot be scanned or watched.
+     */
+    public WatchingResourceSource(final Collection<Path> roots,
+                                  final Predicate<Path> filter,
+                                  final DependencyParser<Path, D> parser,
+                                  final long debounceMillis,
+                                  final BiConsumer<Path, RuntimeException> failureHandler,
+                                  final ClosureCache<D> closureCache) throws IOException {
+        this(roots, filter, parser, debounceMillis, debounceMillis * 20, failureHandler, closureCache);
+    }
+
+    public WatchingResourceSource(final Collection<Path> roots,
+                                  final Predicate<Path> filter,
+                                  final DependencyParser<Path, D> parser) throws IOException {
+        this(roots, filter, parser, 50, (path, exception) -> {
+        }, null);
+    }
+
+    /**
+     * @param listener Receives every change that is applied to the graph, on the watcher thread.
+     */
+    public void addChangeListener(final Consumer<MutableDependencyGraph.Change<D>> listener) {
+        changeListeners.add(listener);
+    }
+
+    public MutableDependencyGraph<D> getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    public ConcurrentDependencyResolver<D> getResolver() {
+        return resolver;
+    }
+
+    @Override
+    public Iterator<Path> iterator() {
+        return Collections.unmodifiableSet(new TreeSet<>(files.keySet())).iterator();
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return The dependencies of the namespaces, resolved against the current files.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public List<D> getDependenciesFor(final Collection<String> namespaces) throws DependencyException {
+        return dependencyGraph.withReadLock(() -> closureCache != null ?
+                closureCache.resolveNamespaces(resolver, namespaces) :
+                resolver.resolveNamespaces(namespaces));
+    }
+
+    /**
+     * @param namespaces The namespaces to resolve.
+     * @return The files of {@link #getDependenciesFor(Collection)}.
+     * @throws DependencyException If dependency resolution fails.
+     */
+    public List<Path> getResourcesFor(final Collection<String> namespaces) throws DependencyException {
+        return getDependenciesFor(namespaces).stream().map(DependencyNode::getResource).collect(Collectors.toList());
+    }
+
+    private void scan(final Path directory,
+                      final Set<String> affected) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir,
+                                                     final BasicFileAttributes attributes) throws IOException {
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file,
+                                             final BasicFileAttributes attributes) {
+                if (attributes.isRegularFile()) {
+                    update(file, affected);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(final Path directory) throws IOException {
+        synchronized (directories) {
+            if (!isWatched(directory)) {
+                directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+                watchedDirectories.add(directory);
+                deletedDirectories.remove(directory);
+            }
+        }
+    }
+
+    private boolean isWatched(final Path directory) {
+        synchronized (directories) {
+            return watchedDirectories.contains(directory);
+        }
+    }
+
+    /**
+     * Forgets a deleted directory and every directory under it. A directory that was moved away keeps a valid key, so
+     * the keys are cancelled too.
+     *
+     * @return True if the path was a watched directory.
+     */
+    private boolean forgetDirectory(final Path path) {
+        synchronized (directories) {
+            final boolean watched = watchedDirectories.remove(path) | deletedDirectories.remove(path);
+            if (watched) {
+                watchedDirectories.removeIf(directory -> directory.startsWith(path));
+                deletedDirectories.removeIf(directory -> directory.startsWith(path));
+                final Iterator<Map.Entry<WatchKey, Path>> entries = directories.entrySet().iterator();
+                while (entries.hasNext()) {
+                    final Map.Entry<WatchKey, Path> entry = entries.next();
+                    if (entry.getValue().startsWith(path)) {
+                        entry.getKey().cancel();
+                        entries.remove();
+                    }
+                }
+            }
+            return watched;
+        }
+    }
+
+    /**
+     * Scans a directory that appeared, reporting a directory that cannot be read to the failure handler.
+     */
+    private void scanNew(final Path directory,
+                         final Set<String> affected) {
+        try {
+            scan(directory, affected);
+        } catch (IOException exception) {
+            report(directory, new UncheckedIOException(exception));
+        }
+    }
+
+    /**
+     * Passes a failure to the failure handler. A handler that throws must not stop the watcher, so what it throws is
+     * dropped.
+     */
+    private void report(final Path path,
+                        final RuntimeException exception) {
+        try {
+            failureHandler.accept(path, exception);
+        } catch (RuntimeException ignored) {
+            // there is nobody left to tell.
+        }
+    }
+
+    /**
+     * Parses a file that was created or modified, or removes it if it is gone or no longer parses.
+     */
+    private void update(final Path file,
+                        final Set<String> affected) {
+        if (!filter.test(file) || !Files.isRegularFile(file)) {
+            remove(file, affected);
+            return;
+        }
+        final D node;
+        try {
+            node = parser.parse(file);
+        } catch (RuntimeException exception) {
+            remove(file, affected);
+            report(file, exception);
+            return;
+        }
+        final D previous = files.put(file, node);
+        final MutableDependencyGraph.Change<D> change = previous != null && dependencyGraph.containsNode(previous) ?
+                dependencyGraph.replaceNode(previous, node) :
+                dependencyGraph.addNode(node);
+        apply(change, affected);
+    }
+
+    private void remove(final Path path,
+                        final Set<String> affected) {
+        final D previous = files.remove(path);
+        if (previous != null) {
+            apply(dependencyGraph.removeNode(previous), affected);
+        }
+    }
+
+    private void apply(final MutableDependencyGraph.Change<D> change,
+                       final Set<String> affected) {
+        affected.addAll(change.getAffectedNamespaces());
+        for (Consumer<MutableDependencyGraph.Change<D>> listener : changeListeners) {
+            listener.accept(change);
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                final Set<Path> dirty = new LinkedHashSet<>();
+                boolean overflow = collect(watchService.take(), dirty);
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                for (WatchKey key = poll(deadline); key != null; key = poll(deadline)) {
+                    overflow |= collect(key, dirty);
+                }
+                final boolean rescan = overflow;
+                dependencyGraph.withWriteLock(() -> applyChanges(dirty, rescan));
+            } catch (InterruptedException | ClosedWatchServiceException exception) {
+                return;
+            } catch (RuntimeException exception) {
+                if (!closed) {
+                    report(null, exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The next key to arrive within the debounce interval, or null if none does or the deadline has passed.
+     */
+    private WatchKey poll(final long deadline) throws InterruptedException {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return null;
+        }
+        return watchService.poll(Math.min(TimeUnit.MILLISECONDS.toNanos(debounceMillis), remaining),
+                                 TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return True if events were lost and the roots have to be scanned again.
+     */
+    private boolean collect(final WatchKey key,
+                            final Set<Path> dirty) {
+        final Path directory;
+        synchronized (directories) {
+            directory = directories.get(key);
+        }
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+            } else if (directory != null) {
+                dirty.add(directory.resolve((Path) event.context()));
+            }
+        }
+        if (!key.reset()) {
+            synchronized (directories) {
+                final Path removed = directories.remove(key);
+                if (removed != null && watchedDirectories.remove(removed)) {
+                    deletedDirectories.add(removed);
+                }
+            }
+        }
+        return overflow;
+    }
+
+    private void applyChanges(final Set<Path> dirty,
+                              final boolean rescan) {
+        final Set<String> affected = new HashSet<>();
+        try {
+            if (rescan) {
+                for (Path file : new ArrayList<>(files.keySet())) {
+                    if (!Files.isRegularFile(file)) {
+                        remove(file, affected);
+                    }
+                }
+                for (Path root : roots) {
+                    scanNew(root, affected);
+                }
+            }
+            for (Path path : dirty) {
+                try {
+                    applyChange(path, affected);
+                } catch (ClosedWatchServiceException exception) {
+                    throw exception;
+                } catch (RuntimeException exception) {
+                    report(path, exception);
+                }
+            }
+        } finally {
+            if (closureCache != null) {
+                closureCache.invalidate(affected);
+            }
+        }
+    }
+
+    private void applyChange(final Path path,
+                             final Set<String> affected) {
+        if (Files.isDirectory(path)) {
+            if (!isWatched(path)) {
+                scanNew(path, affected);
+            }
+        } else if (Files.exists(path) || files.containsKey(path)) {
+            update(path, affected);
+        } else if (forgetDirectory(path)) {
+            for (Path file : new ArrayList<>(files.keySet())) {
+                if (file.startsWith(path)) {
+                    remove(file, affected);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops watching. The graph keeps the state it had.
+     *
+     * @throws IOException If the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        thread.interrupt();
+    }
+}
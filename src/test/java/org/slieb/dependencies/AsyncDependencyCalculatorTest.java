@@ -0,0 +1,127 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.*;
+
+public class AsyncDependencyCalculatorTest {
+
+    ScheduledExecutorService executor;
+
+    List<Integer> resources;
+
+    Set<Integer> fetched;
+
+    Set<Integer> broken;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newScheduledThreadPool(4);
+        resources = range(0, 100).boxed().collect(toList());
+        fetched = ConcurrentHashMap.newKeySet();
+        broken = new HashSet<>();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * An in-memory stand in for a blob store, which completes every fetch on another thread after a short delay.
+     */
+    private CompletionStage<Node> fetchAndParse(final Integer resource) {
+        fetched.add(resource);
+        final CompletableFuture<Node> future = new CompletableFuture<>();
+        executor.schedule(() -> {
+            if (broken.contains(resource)) {
+                future.completeExceptionally(new IllegalStateException("cannot fetch " + resource));
+            } else {
+                future.complete(Node.create(resource));
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    @Test
+    public void testWithoutIndexFetchesEverything() throws Exception {
+        final List<Integer> result = new AsyncDependencyCalculator<Integer, Node>(resources, this::fetchAndParse)
+                .getResourcesForAsync(ImmutableList.of("10")).get(10, TimeUnit.SECONDS);
+        assertEquals(new DependencyCalculator<>(resources, Node::create).getResourcesFor("10"), result);
+        assertEquals(100, fetched.size());
+    }
+
+    @Test
+    public void testWithIndexOnlyFetchesReachableResources() throws Exception {
+        final AsyncDependencyCalculator<Integer, Node> calculator = new AsyncDependencyCalculator<>(
+                this::fetchAndParse, Integer::valueOf);
+        final List<Integer> result = calculator.getResourcesForAsync(ImmutableList.of("10")).get(10, TimeUnit.SECONDS);
+        assertEquals(new DependencyCalculator<>(resources, Node::create).getResourcesFor("10"), result);
+        assertEquals(range(0, 11).boxed().collect(toSet()), fetched);
+
+        fetched.clear();
+        calculator.getResourcesForAsync(ImmutableList.of("12")).get(10, TimeUnit.SECONDS);
+        assertEquals(new HashSet<>(ImmutableList.of(11, 12)), fetched);
+    }
+
+    @Test
+    public void testFailsOnUnprovidedNamespace() throws Exception {
+        try {
+            new AsyncDependencyCalculator<Integer, Node>(this::fetchAndParse, namespace -> null)
+                    .getResourcesForAsync(ImmutableList.of("10")).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException exception) {
+            assertTrue(exception.getCause() instanceof DependencyException);
+        }
+    }
+
+    @Test
+    public void testFailsOnFailedFetchAndRetries() throws Exception {
+        broken.add(5);
+        final AsyncDependencyCalculator<Integer, Node> calculator = new AsyncDependencyCalculator<>(
+                this::fetchAndParse, Integer::valueOf);
+        try {
+            calculator.getResourcesForAsync(ImmutableList.of("10")).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException exception) {
+            assertTrue(exception.getCause() instanceof IllegalStateException);
+        }
+        broken.clear();
+        assertEquals(range(0, 11).boxed().collect(toList()),
+                     calculator.getResourcesForAsync(ImmutableList.of("10")).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFollowsADeepChainOfCompletedFetches() throws Exception {
+        final AsyncDependencyParser<Integer, Node> parser =
+                resource -> CompletableFuture.completedFuture(Node.create(resource));
+        final AsyncDependencyCalculator<Integer, Node> calculator = new AsyncDependencyCalculator<>(
+                parser, Integer::valueOf);
+        assertEquals(range(0, 20001).boxed().collect(toList()),
+                     calculator.getResourcesForAsync(ImmutableList.of("20000")).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailsWhenTheIndexThrows() throws Exception {
+        try {
+            new AsyncDependencyCalculator<Integer, Node>(this::fetchAndParse, namespace -> {
+                if (namespace.equals("7")) {
+                    throw new IllegalArgumentException(namespace);
+                }
+                return Integer.valueOf(namespace);
+            }).getResourcesForAsync(ImmutableList.of("10")).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException exception) {
+            assertTrue(exception.getCause() instanceof IllegalArgumentException);
+        }
+    }
+}
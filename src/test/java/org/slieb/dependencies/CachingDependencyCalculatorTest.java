@@ -0,0 +1,143 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingDependencyCalculatorTest {
+
+    public static class R {
+    }
+
+    String nsA = "ns.A", nsB = "ns.B", nsC = "ns.c";
+
+    @Mock
+    R resourceA, resourceB, resourceC;
+
+    @Mock
+    DependencyNode<R> depA, depB, depC;
+
+    @Mock
+    DependencyParser<R, DependencyNode<R>> mockParser;
+
+    Map<R, Integer> versions;
+
+    List<R> resources;
+
+    CachingDependencyCalculator<R, DependencyNode<R>> calculator;
+
+    private void setupReadable(R resource,
+                               DependencyNode<R> dependency,
+                               String ns) {
+        when(mockParser.parse(resource)).thenReturn(dependency);
+        when(dependency.getResource()).thenReturn(resource);
+        when(dependency.getProvides()).thenReturn(ImmutableSet.of(ns));
+        when(dependency.getRequires()).thenReturn(ImmutableSet.of());
+        versions.put(resource, 0);
+    }
+
+    @Before
+    public void setup() {
+        versions = new HashMap<>();
+        setupReadable(resourceA, depA, nsA);
+        setupReadable(resourceB, depB, nsB);
+        setupReadable(resourceC, depC, nsC);
+        when(depA.getRequires()).thenReturn(ImmutableSet.of(nsB));
+        resources = new ArrayList<>(ImmutableList.of(resourceA, resourceB, resourceC));
+        calculator = new CachingDependencyCalculator<>(resources, mockParser, versions::get);
+    }
+
+    @Test
+    public void testParsesOnlyOnce() {
+        assertEquals(ImmutableList.of(depB, depA), calculator.getDependenciesFor(nsA));
+        assertEquals(ImmutableList.of(depC), calculator.getDependenciesFor(nsC));
+        assertEquals(ImmutableList.of(resourceB, resourceA), calculator.getResourcesFor(resourceA));
+        verify(mockParser, times(1)).parse(resourceA);
+        verify(mockParser, times(1)).parse(resourceB);
+        verify(mockParser, times(1)).parse(resourceC);
+    }
+
+    @Test
+    public void testReparsesChangedResource() {
+        assertEquals(ImmutableList.of(depB, depA), calculator.getDependenciesFor(nsA));
+        versions.put(resourceA, 1);
+        when(depA.getRequires()).thenReturn(ImmutableSet.of(nsC));
+        assertEquals(ImmutableList.of(depC, depA), calculator.getDependenciesFor(nsA));
+        verify(mockParser, times(2)).parse(resourceA);
+        verify(mockParser, times(1)).parse(resourceB);
+        verify(mockParser, times(1)).parse(resourceC);
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testForgetsRemovedResource() {
+        assertEquals(ImmutableList.of(depB, depA), calculator.getDependenciesFor(nsA));
+        resources.remove(resourceB);
+        calculator.getDependenciesFor(nsA);
+    }
+
+    @Test
+    public void testKeepsUnaffectedClosures() {
+        final ClosureCache<DependencyNode<R>> closureCache = new ClosureCache<>(100);
+        calculator = new CachingDependencyCalculator<>(resources, mockParser,
+                                                       new DependencyCalculator.DefaultHelper<>(),
+                                                       versions::get, closureCache);
+        assertEquals(ImmutableList.of(depB, depA), calculator.getDependenciesFor(nsA));
+        assertEquals(ImmutableList.of(depC), calculator.getDependenciesFor(nsC));
+        versions.put(resourceC, 1);
+        assertEquals(ImmutableList.of(depB, depA), calculator.getDependenciesFor(nsA));
+        assertEquals(1, closureCache.getStats().getHitCount());
+        assertEquals(ImmutableList.of(depC), calculator.getDependenciesFor(nsC));
+        assertEquals(1, closureCache.getStats().getHitCount());
+    }
+
+    @Test
+    public void testBatchResolvesWhileAnotherThreadRefreshes() throws Exception {
+        final List<Integer> chain = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            chain.add(i);
+        }
+        final Map<Integer, Integer> chainVersions = new ConcurrentHashMap<>();
+        chain.forEach(i -> chainVersions.put(i, 0));
+        final CachingDependencyCalculator<Integer, Node> chainCalculator =
+                new CachingDependencyCalculator<>(chain, Node::create, chainVersions::get);
+        final Map<String, Set<String>> bundles =
+                ImmutableMap.of("a", ImmutableSet.of("199"), "b", ImmutableSet.of("100", "150"));
+        final AtomicBoolean stop = new AtomicBoolean();
+        final Thread refresher = new Thread(() -> {
+            for (int version = 1; !stop.get(); version++) {
+                for (int i = 0; i < chain.size(); i += 7) {
+                    chainVersions.put(i, version);
+                }
+                chainCalculator.refresh();
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        refresher.start();
+        try {
+            for (int i = 0; i < 500; i++) {
+                final Map<String, List<Integer>> result = chainCalculator.getResourcesFor(bundles, executor);
+                assertEquals(chain, result.get("a"));
+                assertEquals(chain.subList(0, 151), result.get("b"));
+            }
+        } finally {
+            stop.set(true);
+            refresher.join();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.*;
+
+public class CachingDependencyParserTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AtomicInteger parses = new AtomicInteger();
+
+    private final List<Integer> resources = range(0, 100).boxed().collect(toList());
+
+    private CachingDependencyParser<Integer, Node> parser(final ParseResultStore store) {
+        return new CachingDependencyParser<Integer, Node>(resource -> {
+            parses.incrementAndGet();
+            return Node.create(resource);
+        }, Node::new, resource -> resource, store);
+    }
+
+    @Test
+    public void testWarmStartSkipsParsing() throws IOException {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("parse.cache");
+        final List<Integer> cold;
+        try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+            cold = new DependencyCalculator<>(resources, parser(store)).getResourcesFor("99");
+        }
+        assertEquals(100, parses.get());
+
+        parses.set(0);
+        try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+            final CachingDependencyParser<Integer, Node> parser = parser(store);
+            assertEquals(cold, new DependencyCalculator<>(resources, parser).getResourcesFor("99"));
+            assertEquals(100, parser.getHits());
+            assertEquals(0, parser.getMisses());
+        }
+        assertEquals(0, parses.get());
+    }
+
+    @Test
+    public void testNewVersionDiscardsResults() throws IOException {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("parse.cache");
+        try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+            parser(store).parseAll(resources);
+        }
+        try (ParseResultStore store = ParseResultStore.open(file, "2", Long.MAX_VALUE)) {
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("parse.cache");
+        try (ParseResultStore store = ParseResultStore.open(file, "1", 200)) {
+            final CachingDependencyParser<Integer, Node> parser = parser(store);
+            parser.parse(0);
+            for (int i = 1; i < 100; i++) {
+                parser.parse(i);
+                parser.parse(0);
+            }
+            assertTrue(store.getByteSize() <= 200);
+            assertTrue(store.size() < 100);
+            assertNotNull(store.get("0".getBytes()));
+            assertNotNull(store.get("99".getBytes()));
+            assertNull(store.get("1".getBytes()));
+        }
+        assertTrue(Files.size(file) < 1024 * 3);
+        try (ParseResultStore store = ParseResultStore.open(file, "1", 200)) {
+            assertNotNull(store.get("0".getBytes()));
+            assertNotNull(store.get("99".getBytes()));
+            assertTrue(store.getByteSize() <= 200);
+        }
+    }
+
+    @Test
+    public void testDropsTruncatedRecord() throws IOException {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("parse.cache");
+        try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+            store.put("a".getBytes(), ImmutableSet.of("a"), ImmutableSet.of());
+            store.put("b".getBytes(), ImmutableSet.of("b"), ImmutableSet.of("a"));
+        }
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3), StandardOpenOption.TRUNCATE_EXISTING);
+        try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+            assertEquals(1, store.size());
+            assertEquals(ImmutableList.of("a"), ImmutableList.copyOf(store.get("a".getBytes()).getProvides()));
+            store.put("c".getBytes(), ImmutableSet.of("c"), ImmutableSet.of());
+        }
+        try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+            assertEquals(2, store.size());
+            assertNotNull(store.get("c".getBytes()));
+        }
+    }
+
+    @Test
+    public void testTreatsImpossibleLengthsAsTheEnd() throws IOException {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("parse.cache");
+        try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+            store.put("a".getBytes(), ImmutableSet.of("a"), ImmutableSet.of());
+        }
+        final byte[] valid = Files.readAllBytes(file);
+        // a key length, a negative key length, and a key followed by a provides count that cannot fit.
+        for (int[] tail : new int[][]{{Integer.MAX_VALUE}, {-1}, {4, 0x62626262, Integer.MAX_VALUE}}) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.write(valid);
+            for (int value : tail) {
+                out.writeInt(value);
+            }
+            out.write(new byte[16]);
+            Files.write(file, bytes.toByteArray(), StandardOpenOption.TRUNCATE_EXISTING);
+            try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+                assertEquals(1, store.size());
+            }
+            assertEquals(valid.length, Files.size(file));
+        }
+    }
+
+    @Test
+    public void testLocksTheStoreWhileOpen() throws IOException {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("parse.cache");
+        try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+            store.put("a".getBytes(), ImmutableSet.of("a"), ImmutableSet.of());
+            try {
+                ParseResultStore.open(file, "1", Long.MAX_VALUE);
+                fail("expected the store to be locked");
+            } catch (OverlappingFileLockException expected) {
+                // another process would wait here instead.
+            }
+        }
+        try (ParseResultStore store = ParseResultStore.open(file, "1", Long.MAX_VALUE)) {
+            assertEquals(1, store.size());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.assertEquals;
+
+
+public class ClosureCacheTest {
+
+    ConcurrentDependencyResolver<Node> resolver;
+
+    @Before
+    public void setUp() {
+        final Random random = new Random(7);
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final Set<String> requires = new LinkedHashSet<>();
+            for (int j = 0; i > 0 && j < 3; j++) {
+                requires.add(String.valueOf(random.nextInt(i)));
+            }
+            nodes.add(new Node(i, ImmutableSet.of(String.valueOf(i)), requires));
+        }
+        resolver = new ConcurrentDependencyResolver<>(CompiledDependencyGraph.compile(nodes),
+                                                      ImmutableList.of(nodes.get(3), nodes.get(100)));
+    }
+
+    @Test
+    public void testSameOrderAsResolver() {
+        final ClosureCache<Node> cache = new ClosureCache<>(100000);
+        final Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            final List<String> namespaces = range(0, 1 + random.nextInt(5))
+                    .mapToObj(j -> String.valueOf(random.nextInt(500)))
+                    .distinct().collect(toList());
+            assertEquals(resolver.resolveNamespaces(namespaces), cache.resolveNamespaces(resolver, namespaces));
+        }
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        final ClosureCache<Node> cache = new ClosureCache<>(100000);
+        cache.resolveNamespaces(resolver, ImmutableList.of("499", "300"));
+        cache.resolveNamespaces(resolver, ImmutableList.of("499", "300"));
+        cache.resolveNamespaces(resolver, ImmutableList.of("300"));
+        final ClosureCache.Stats stats = cache.getStats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(4, stats.getMissCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        final ClosureCache<Node> cache = new ClosureCache<>(2);
+        cache.resolveBlock(resolver, "0");
+        cache.resolveBlock(resolver, "1");
+        cache.resolveBlock(resolver, "0");
+        final ClosureCache.Stats stats = cache.getStats();
+        assertEquals(0, stats.getHitCount());
+        assertEquals(2, stats.getEvictionCount());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    public void testInvalidatedByNewResolver() {
+        final ClosureCache<Node> cache = new ClosureCache<>(100000);
+        cache.resolveBlock(resolver, "10");
+        final ConcurrentDependencyResolver<Node> changed = new ConcurrentDependencyResolver<>(
+                range(0, 20).boxed().map(Node::create).collect(toSet()));
+        assertEquals(changed.resolveNamespaces(ImmutableList.of("10")), cache.resolveBlock(changed, "10"));
+        assertEquals(0, cache.getStats().getHitCount());
+    }
+}
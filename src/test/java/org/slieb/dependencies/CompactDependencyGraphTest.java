@@ -0,0 +1,74 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+public class CompactDependencyGraphTest {
+
+    private Map<Integer, Set<Integer>> randomDependencyMap(int size) {
+        final Random random = new Random(size);
+        final Map<Integer, Set<Integer>> dependencyMap = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            final Set<Integer> dependencies = new LinkedHashSet<>();
+            for (int j = 0; i > 0 && j < 3; j++) {
+                dependencies.add(random.nextInt(i));
+            }
+            dependencyMap.put(i, dependencies);
+        }
+        return dependencyMap;
+    }
+
+    @Test
+    public void testSameOrderAsDependencyMapResolver() {
+        final Map<Integer, Set<Integer>> dependencyMap = randomDependencyMap(2000);
+        final List<Integer> entryPoints = ImmutableList.of(1999, 1500, 12, 1800);
+        assertEquals(new DependencyMapResolver<>(dependencyMap).resolveNodes(entryPoints).resolve(),
+                     CompactDependencyGraph.fromDependencyMap(dependencyMap).resolve(entryPoints));
+    }
+
+    @Test
+    public void testCompressedRows() {
+        final CompactDependencyGraph<String> graph = CompactDependencyGraph.fromDependencyMap(
+                ImmutableMap.of("a", ImmutableList.of("b", "c"), "b", ImmutableList.of("c"), "c", ImmutableList.of()));
+        assertEquals(3, graph.size());
+        assertEquals(3, graph.edgeCount());
+        assertEquals(2, graph.getDependencyCount(graph.getId("a")));
+        assertEquals("c", graph.getNode(graph.getDependency(graph.getId("a"), 1)));
+        assertArrayEquals(new int[]{2, 1, 0}, graph.resolveIds(0));
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testMissingDependency() {
+        CompactDependencyGraph.fromDependencyMap(ImmutableMap.of("a", ImmutableSet.of("b")))
+                .resolve(ImmutableList.of("a"));
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testCircularDependency() {
+        CompactDependencyGraph.fromDependencyMap(ImmutableMap.of("a", ImmutableSet.of("b"), "b", ImmutableSet.of("a")))
+                .resolve(ImmutableList.of("a"));
+    }
+
+    @Test
+    public void testReusesWalkAfterFailure() {
+        final CompactDependencyGraph<String> graph = CompactDependencyGraph.fromDependencyMap(
+                ImmutableMap.of("a", ImmutableSet.of("b"), "b", ImmutableSet.of("a"), "c", ImmutableSet.of("b")));
+        try {
+            graph.resolve(ImmutableList.of("c"));
+        } catch (DependencyException expected) {
+            // the bits of the nodes left on the stack must be cleared.
+        }
+        final Map<Integer, Set<Integer>> dependencyMap = randomDependencyMap(3000);
+        final List<Integer> entryPoints = ImmutableList.of(2999);
+        assertEquals(new DependencyMapResolver<>(dependencyMap).resolveNodes(entryPoints).resolve(),
+                     CompactDependencyGraph.fromDependencyMap(dependencyMap).resolve(entryPoints));
+    }
+}
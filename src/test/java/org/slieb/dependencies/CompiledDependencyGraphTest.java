@@ -0,0 +1,58 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.LinkedHashSet;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CompiledDependencyGraphTest {
+
+    @Mock
+    DependencyNode<?> depA, depB, depC;
+
+    @Before
+    public void setupResources() {
+        when(depA.getProvides()).thenReturn(newHashSet("dep.a"));
+        when(depB.getProvides()).thenReturn(newHashSet("dep.b"));
+        when(depC.getProvides()).thenReturn(newHashSet("dep.c"));
+    }
+
+    @Test
+    public void testGetProvider() {
+        CompiledDependencyGraph<DependencyNode<?>> graph =
+                CompiledDependencyGraph.compile(ImmutableSet.of(depA, depB, depC));
+        assertSame(depA, graph.getProvider("dep.a"));
+        assertSame(depC, graph.getProvider("dep.c"));
+        assertNull(graph.getProvider("dep.x"));
+    }
+
+    @Test
+    public void testFirstProviderWins() {
+        when(depC.getProvides()).thenReturn(newHashSet("dep.a"));
+        assertSame(depA, CompiledDependencyGraph.compile(ImmutableList.of(depA, depC)).getProvider("dep.a"));
+        assertSame(depC, CompiledDependencyGraph.compile(ImmutableList.of(depC, depA)).getProvider("dep.a"));
+    }
+
+    @Test
+    public void testGetDependenciesKeepsRequireOrder() {
+        when(depA.getRequires()).thenReturn(new LinkedHashSet<>(ImmutableList.of("dep.c", "dep.b")));
+        assertEquals(ImmutableList.of(depC, depB),
+                     CompiledDependencyGraph.compile(ImmutableSet.of(depA, depB, depC)).getDependencies(depA));
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testGetDependenciesNothingProvides() {
+        when(depA.getRequires()).thenReturn(newHashSet("dep.x"));
+        CompiledDependencyGraph.compile(ImmutableSet.of(depA, depB, depC)).getDependencies(depA);
+    }
+}
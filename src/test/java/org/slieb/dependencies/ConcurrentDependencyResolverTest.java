@@ -0,0 +1,53 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.*;
+
+
+public class ConcurrentDependencyResolverTest {
+
+    @Test
+    public void testIteratorMatchesResolve() {
+        final Random random = new Random(1);
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            final Set<String> requires = new LinkedHashSet<>();
+            for (int j = 0; i > 0 && j < 2; j++) {
+                requires.add(String.valueOf(random.nextInt(i)));
+            }
+            nodes.add(new Node(i, ImmutableSet.of(String.valueOf(i)), requires));
+        }
+        final ConcurrentDependencyResolver<Node> resolver =
+                new ConcurrentDependencyResolver<>(CompiledDependencyGraph.compile(nodes),
+                                                   ImmutableList.of(nodes.get(7)));
+        final List<String> namespaces = ImmutableList.of("299", "150", "7", "298");
+        assertEquals(resolver.resolveNamespaces(namespaces),
+                     Lists.newArrayList(resolver.iterateNamespaces(namespaces)));
+        assertEquals(resolver.resolveNamespaces(namespaces), resolver.streamNamespaces(namespaces).collect(toList()));
+    }
+
+    @Test
+    public void testIteratorIsLazy() {
+        final ConcurrentDependencyResolver<Node> resolver =
+                new ConcurrentDependencyResolver<>(range(0, 100).boxed().map(Node::create).collect(toSet()));
+        final Iterator<Node> iterator = resolver.iterateNamespaces(ImmutableList.of("99", "missing"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.valueOf(i), iterator.next().getResource());
+        }
+        try {
+            iterator.hasNext();
+            fail("expected a DependencyException");
+        } catch (DependencyException expected) {
+            assertTrue(expected.getMessage().contains("missing"));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.slieb.dependencies;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.assertEquals;
+
+
+public class ConcurrentDependencyResolverThreadSafetyTest {
+
+    @Test
+    public void testConcurrentThroughput() throws Exception {
+        final ConcurrentDependencyResolver<Node> resolver =
+                new ConcurrentDependencyResolver<>(range(0, 1000).boxed().map(Node::create).collect(toSet()));
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4000; i++) {
+                final String namespace = String.valueOf(i % 1000);
+                futures.add(executor.submit(() -> resolver.resolveNamespaces(Collections.singleton(namespace))
+                        .stream().map(Node::getResource).collect(toList())));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                final List<Integer> expected = range(0, i % 1000 + 1).boxed().collect(toList());
+                assertEquals(expected, futures.get(i).get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
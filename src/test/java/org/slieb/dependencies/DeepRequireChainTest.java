@@ -0,0 +1,46 @@
+package org.slieb.dependencies;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.assertEquals;
+
+
+public class DeepRequireChainTest {
+
+    @Test
+    public void testDependencyResolverDeepChain() {
+        final int depth = 200000;
+        List<Integer> result = new DependencyResolver<>(range(0, depth).boxed().map(Node::create).collect(toSet()))
+                .resolveNamespace(String.valueOf(depth - 1))
+                .resolve().stream().map(Node::getResource).collect(toList());
+        assertEquals(depth, result.size());
+        range(0, depth).boxed().forEach(i -> assertEquals(i, result.get(i)));
+    }
+
+    @Test
+    public void testDependencyMapResolverDeepChain() {
+        final int depth = 1000000;
+        final Map<Integer, Set<Integer>> dependencyMap = new HashMap<>();
+        dependencyMap.put(0, Collections.emptySet());
+        range(1, depth).forEach(i -> dependencyMap.put(i, Collections.singleton(i - 1)));
+        List<Integer> result = new DependencyMapResolver<>(dependencyMap).resolveNode(depth - 1).resolve();
+        assertEquals(depth, result.size());
+        for (int i = 0; i < depth; i++) {
+            assertEquals(i, result.get(i).intValue());
+        }
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testDependencyMapResolverDeepCycle() {
+        final int depth = 100000;
+        final Map<Integer, Set<Integer>> dependencyMap = new HashMap<>();
+        dependencyMap.put(0, Collections.singleton(depth - 1));
+        range(1, depth).forEach(i -> dependencyMap.put(i, Collections.singleton(i - 1)));
+        new DependencyMapResolver<>(dependencyMap).resolveNode(depth - 1);
+    }
+}
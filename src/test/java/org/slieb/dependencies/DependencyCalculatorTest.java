@@ -1,6 +1,7 @@
 package org.slieb.dependencies;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,7 +9,14 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -89,4 +97,25 @@ public class DependencyCalculatorTest {
         assertEquals(ImmutableList.of(resourceD, resourceC), calculator.getResourcesFor(resourceC));
         assertEquals(ImmutableList.of(resourceD), calculator.getResourcesFor(resourceD));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetResourcesForBundles() {
+        when(depA.getRequires()).thenReturn(ImmutableSet.of(nsB, nsC));
+        when(depB.getRequires()).thenReturn(ImmutableSet.of(nsD));
+        when(depC.getRequires()).thenReturn(ImmutableSet.of(nsD));
+        Map<String, List<R>> result = calculator.getResourcesFor(ImmutableMap.<String, Set<String>>of(
+                "pageA", ImmutableSet.of(nsA),
+                "pageC", ImmutableSet.of(nsC),
+                "pageBD", ImmutableSet.of(nsD, nsB)), ForkJoinPool.commonPool());
+        assertEquals(ImmutableList.of("pageA", "pageC", "pageBD"), ImmutableList.copyOf(result.keySet()));
+        assertEquals(ImmutableList.of(resourceD, resourceB, resourceC, resourceA), result.get("pageA"));
+        assertEquals(ImmutableList.of(resourceD, resourceC), result.get("pageC"));
+        assertEquals(ImmutableList.of(resourceD, resourceB), result.get("pageBD"));
+        verify(mockParser, times(1)).parse(resourceA);
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testGetResourcesForBundlesNotFound() {
+        calculator.getResourcesFor(ImmutableMap.<String, Set<String>>of("page", ImmutableSet.of("ns.X")));
+    }
+}
@@ -0,0 +1,60 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DependencyCyclesTest {
+
+    @Test
+    public void testFindsEveryCycle() {
+        final Map<String, Set<String>> dependencyMap = ImmutableMap.<String, Set<String>>builder()
+                .put("a", ImmutableSet.of("b"))
+                .put("b", ImmutableSet.of("c", "x"))
+                .put("c", ImmutableSet.of("a"))
+                .put("x", ImmutableSet.of())
+                .put("self", ImmutableSet.of("self"))
+                .put("p", ImmutableSet.of("q"))
+                .put("q", ImmutableSet.of("p", "a"))
+                .build();
+        final DependencyCycles<String> cycles = DependencyCycles.analyze(dependencyMap);
+        assertTrue(cycles.hasCycles());
+        assertEquals(ImmutableList.of(ImmutableSet.of("a", "b", "c"), ImmutableSet.of("self"),
+                                      ImmutableSet.of("p", "q")),
+                     cycles.getComponents());
+        assertEquals(ImmutableList.of(ImmutableList.of("a", "b", "c"), ImmutableList.of("self"),
+                                      ImmutableList.of("p", "q")),
+                     cycles.getCycles());
+        try {
+            cycles.validate();
+            fail("expected a DependencyException");
+        } catch (DependencyException expected) {
+            assertTrue(expected.getMessage().contains("a -> b -> c -> a"));
+            assertTrue(expected.getMessage().contains("self -> self"));
+            assertTrue(expected.getMessage().contains("p -> q -> p"));
+        }
+    }
+
+    @Test
+    public void testDeepChainWithoutCycles() {
+        final Map<Integer, Set<Integer>> dependencyMap = new HashMap<>();
+        for (int i = 0; i < 1000000; i++) {
+            dependencyMap.put(i, i == 0 ? Collections.emptySet() : Collections.singleton(i - 1));
+        }
+        assertFalse(DependencyCycles.analyze(dependencyMap).hasCycles());
+        final List<Integer> resolved = DependencyMapResolver.validated(dependencyMap).resolveNode(999999).resolve();
+        assertEquals(1000000, resolved.size());
+        assertEquals(Integer.valueOf(0), resolved.get(0));
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testValidatedResolverRejectsCycles() {
+        DependencyMapResolver.validated(ImmutableMap.<String, Set<String>>of("a", ImmutableSet.of("b"),
+                                                                            "b", ImmutableSet.of("a")));
+    }
+}
@@ -0,0 +1,141 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.Assert.*;
+
+public class DependencyGraphSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Map<Integer, Integer> versions = new HashMap<>();
+
+    private final ResourceChangeDetector<Integer> detector = versions::get;
+
+    private List<Node> createNodes() {
+        final Random random = new Random(3);
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final Set<String> requires = new LinkedHashSet<>();
+            for (int j = 0; i > 0 && j < 3; j++) {
+                requires.add("ns." + random.nextInt(i));
+            }
+            nodes.add(new Node(i, ImmutableSet.of("ns." + i), requires));
+            versions.put(i, 0);
+        }
+        nodes.add(new Node(200, ImmutableSet.of("ns.broken"), ImmutableSet.of("ns.0", "ns.absent")));
+        versions.put(200, 0);
+        return nodes;
+    }
+
+    private Path writeSnapshot(final List<Node> nodes) throws IOException {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("graph.snapshot");
+        DependencyGraphSnapshot.write(file, nodes, String::valueOf, detector);
+        return file;
+    }
+
+    @Test
+    public void testResolvesLikeTheResolver() throws IOException {
+        final List<Node> nodes = createNodes();
+        final DependencyGraphSnapshot snapshot = DependencyGraphSnapshot.open(writeSnapshot(nodes));
+        final List<String> namespaces = ImmutableList.of("ns.199", "ns.120", "ns.3");
+        final List<String> expected = new ConcurrentDependencyResolver<>(nodes).resolveNamespaces(namespaces)
+                .stream().map(node -> String.valueOf(node.getResource())).collect(toList());
+        assertEquals(expected, snapshot.resolveNamespaces(namespaces));
+        assertEquals(201, snapshot.size());
+        assertEquals(ImmutableSet.of("ns.broken"), snapshot.getProvides(snapshot.getProvider("ns.broken")));
+        assertEquals(-1, snapshot.getProvider("ns.absent"));
+    }
+
+    @Test
+    public void testKeepsTheResolvableSetAndBaseList() throws IOException {
+        final List<Node> nodes = createNodes();
+        final List<Node> baseList = ImmutableList.of(nodes.get(5), nodes.get(2));
+        final DependenciesHelper<Node> helper = new DependenciesHelper<Node>() {
+            @Override
+            public List<Node> getBaseList(final Collection<Node> dependencies) {
+                return baseList;
+            }
+
+            @Override
+            public Set<Node> getResolvableSet(final Collection<Node> dependencies) {
+                return dependencies.stream().filter(node -> node.getResource() != 200).collect(toSet());
+            }
+        };
+        final Path file = temporaryFolder.getRoot().toPath().resolve("graph.snapshot");
+        DependencyGraphSnapshot.write(file, nodes, helper, String::valueOf, detector);
+        final DependencyGraphSnapshot snapshot = DependencyGraphSnapshot.open(file);
+
+        final List<String> namespaces = ImmutableList.of("ns.199", "ns.120", "ns.3");
+        final List<String> expected = new ConcurrentDependencyResolver<>(
+                CompiledDependencyGraph.compile(nodes.subList(0, 200)), baseList).resolveNamespaces(namespaces)
+                .stream().map(node -> String.valueOf(node.getResource())).collect(toList());
+        assertEquals(expected, snapshot.resolveNamespaces(namespaces));
+        assertEquals(ImmutableList.of("5", "2"), snapshot.resolveNamespaces(ImmutableList.of()));
+        assertEquals(-1, snapshot.getProvider("ns.broken"));
+        assertTrue(snapshot.isCurrent(nodes.stream().map(Node::getResource).collect(toList()), String::valueOf,
+                                      detector));
+    }
+
+    @Test
+    public void testFindsNamespacesOutsideTheBasicPlane() throws IOException {
+        final List<String> provides = ImmutableList.of("ns.\u00e9", "ns.\uD83D\uDE00", "ns.\uE000", "ns.z");
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < provides.size(); i++) {
+            nodes.add(new Node(i, ImmutableSet.of(provides.get(i)), ImmutableSet.of()));
+            versions.put(i, 0);
+        }
+        final DependencyGraphSnapshot snapshot = DependencyGraphSnapshot.open(writeSnapshot(nodes));
+        for (int i = 0; i < provides.size(); i++) {
+            assertEquals(i, snapshot.getProvider(provides.get(i)));
+        }
+    }
+
+    @Test
+    public void testFailsLikeTheResolver() throws IOException {
+        final DependencyGraphSnapshot snapshot = DependencyGraphSnapshot.open(writeSnapshot(createNodes()));
+        try {
+            snapshot.resolveNamespaces(ImmutableList.of("ns.broken"));
+            fail("expected a DependencyException");
+        } catch (DependencyException expected) {
+            assertEquals("nothing provides ns.absent", expected.getMessage());
+        }
+        try {
+            snapshot.resolveNamespaces(ImmutableList.of("ns.unknown"));
+            fail("expected a DependencyException");
+        } catch (DependencyException expected) {
+            assertEquals("nothing provides ns.unknown", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testDetectsStaleSnapshots() throws IOException {
+        final List<Node> nodes = createNodes();
+        final List<Integer> resources = nodes.stream().map(Node::getResource).collect(toList());
+        final DependencyGraphSnapshot snapshot = DependencyGraphSnapshot.open(writeSnapshot(nodes));
+        assertTrue(snapshot.isCurrent(resources, String::valueOf, detector));
+        versions.put(42, 1);
+        assertFalse(snapshot.isCurrent(resources, String::valueOf, detector));
+        versions.put(42, 0);
+        assertFalse(snapshot.isCurrent(resources.subList(1, resources.size()), String::valueOf, detector));
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        final Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, "not a snapshot at all".getBytes("UTF-8"));
+        DependencyGraphSnapshot.open(file);
+    }
+}
@@ -0,0 +1,128 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class DependencyLayersTest {
+
+    private final Map<String, Set<String>> dependencyMap = ImmutableMap.<String, Set<String>>builder()
+            .put("app", ImmutableSet.of("ui", "net"))
+            .put("ui", ImmutableSet.of("dom", "base"))
+            .put("net", ImmutableSet.of("base"))
+            .put("dom", ImmutableSet.of("base"))
+            .put("base", ImmutableSet.of())
+            .put("unused", ImmutableSet.of("base"))
+            .build();
+
+    @Test
+    public void testLayers() {
+        final DependencyLayers<String> layers = DependencyLayers.of(dependencyMap, ImmutableList.of("app"));
+        assertEquals(ImmutableList.of(ImmutableList.of("base"), ImmutableList.of("dom", "net"),
+                                      ImmutableList.of("ui"), ImmutableList.of("app")),
+                     layers.getLayers());
+        assertEquals(4, layers.getCriticalPathLength());
+        assertEquals(1, layers.getLayer("net"));
+        assertEquals(4, layers.getCriticalPathLength("base"));
+        assertEquals(2, layers.getCriticalPathLength("net"));
+        assertEquals(1, layers.getCriticalPathLength("app"));
+    }
+
+    @Test
+    public void testLayersOfDependencyGraph() {
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            nodes.add(Node.create(i));
+        }
+        final DependencyLayers<Node> layers = DependencyLayers.of(CompiledDependencyGraph.compile(nodes),
+                                                                  ImmutableList.of("3"));
+        assertEquals(4, layers.getLayers().size());
+        assertEquals(2, layers.getLayer(nodes.get(2)));
+    }
+
+    @Test
+    public void testLayersOfReachabilityIndex() {
+        final List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            nodes.add(Node.create(i));
+        }
+        final ReachabilityIndex<Node> index = new ReachabilityIndex<>(
+                new ConcurrentDependencyResolver<>(CompiledDependencyGraph.compile(nodes)));
+        assertEquals(DependencyLayers.of(CompiledDependencyGraph.compile(nodes), ImmutableList.of("3")).getLayers(),
+                     DependencyLayers.of(index, ImmutableList.of("3")).getLayers());
+        assertEquals(2, DependencyLayers.of(index, ImmutableList.of("1")).getLayers().size());
+    }
+
+    @Test
+    public void testExecuteStartsLongestCriticalPathFirst() {
+        final Map<String, Set<String>> map = ImmutableMap.<String, Set<String>>builder()
+                .put("app", ImmutableSet.of("short", "long"))
+                .put("short", ImmutableSet.of())
+                .put("long", ImmutableSet.of("longer"))
+                .put("longer", ImmutableSet.of())
+                .build();
+        final List<String> started = new ArrayList<>();
+        DependencyLayers.of(map, ImmutableList.of("app")).execute(started::add, Runnable::run, 1).join();
+        assertEquals(ImmutableList.of("longer", "short", "long", "app"), started);
+    }
+
+    @Test
+    public void testExecuteDeepChainOnTheCallingThread() {
+        final Map<Integer, Set<Integer>> map = new HashMap<>();
+        map.put(0, ImmutableSet.of());
+        for (int i = 1; i < 20000; i++) {
+            map.put(i, ImmutableSet.of(i - 1));
+        }
+        final Map<Integer, Integer> results = DependencyLayers.of(map, ImmutableList.of(19999))
+                .execute(node -> node, Runnable::run).join();
+        assertEquals(20000, results.size());
+    }
+
+    @Test
+    public void testExecuteRunsDependenciesFirst() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Set<String> completed = ConcurrentHashMap.newKeySet();
+            final Map<String, Integer> results = DependencyLayers.of(dependencyMap, ImmutableList.of("app"))
+                    .execute(node -> {
+                        for (String dependency : dependencyMap.get(node)) {
+                            assertTrue(completed.contains(dependency));
+                        }
+                        completed.add(node);
+                        return node.length();
+                    }, executor).get(10, TimeUnit.SECONDS);
+            assertEquals(ImmutableList.of("base", "dom", "ui", "net", "app"), new ArrayList<>(results.keySet()));
+            assertEquals(Integer.valueOf(3), results.get("app"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testExecuteStopsAtFailures() throws Exception {
+        final Set<String> ran = ConcurrentHashMap.newKeySet();
+        final CompletableFuture<Map<String, Object>> future =
+                DependencyLayers.of(dependencyMap, ImmutableList.of("app")).execute(node -> {
+                    ran.add(node);
+                    if (node.equals("dom")) {
+                        throw new IllegalStateException("dom failed");
+                    }
+                    return node;
+                }, Runnable::run);
+        try {
+            future.get();
+            fail("expected an ExecutionException");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        assertFalse(ran.contains("ui"));
+        assertFalse(ran.contains("app"));
+        assertTrue(ran.contains("net"));
+    }
+}
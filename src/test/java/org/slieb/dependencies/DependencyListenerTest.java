@@ -0,0 +1,216 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableSet;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.*;
+
+public class DependencyListenerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static class CountingListener implements DependencyListener {
+
+        final Map<Phase, Integer> phases = new EnumMap<>(Phase.class);
+
+        int parsed, failed, closureHits, closureMisses;
+
+        final List<Object> failedResources = new ArrayList<>();
+
+        long nodesVisited, edgesFollowed;
+
+        final List<String> modules = new ArrayList<>();
+
+        @Override
+        public synchronized void phaseCompleted(final Phase phase,
+                                                final long nanos) {
+            assertTrue(nanos >= 0);
+            phases.merge(phase, 1, Integer::sum);
+        }
+
+        @Override
+        public synchronized void parsed(final Object resource) {
+            parsed++;
+        }
+
+        @Override
+        public synchronized void parseFailed(final Object resource,
+                                             final Throwable failure) {
+            failed++;
+            failedResources.add(resource);
+        }
+
+        @Override
+        public synchronized void closureCacheHit(final Object key) {
+            closureHits++;
+        }
+
+        @Override
+        public synchronized void closureCacheMiss(final Object key) {
+            closureMisses++;
+        }
+
+        @Override
+        public synchronized void resolved(final long nodesVisited,
+                                          final long edgesFollowed) {
+            this.nodesVisited += nodesVisited;
+            this.edgesFollowed += edgesFollowed;
+        }
+
+        @Override
+        public synchronized void moduleResolved(final String module,
+                                                final int nodes,
+                                                final int hoisted) {
+            modules.add(module + ":" + nodes + ":" + hoisted);
+        }
+    }
+
+    private final List<Integer> resources = range(0, 10).boxed().collect(toList());
+
+    @Test
+    public void testCalculatorReportsEveryPhase() {
+        final CountingListener listener = new CountingListener();
+        final List<Integer> result = new DependencyCalculator<>(resources, Node::create)
+                .withListener(listener)
+                .getResourcesFor("9");
+        assertEquals(resources, result);
+        assertEquals(10, listener.parsed);
+        assertEquals(10, listener.nodesVisited);
+        assertEquals(9, listener.edgesFollowed);
+        assertEquals(Integer.valueOf(1), listener.phases.get(DependencyListener.Phase.PARSE));
+        assertEquals(Integer.valueOf(1), listener.phases.get(DependencyListener.Phase.INDEX));
+        assertEquals(Integer.valueOf(1), listener.phases.get(DependencyListener.Phase.RESOLVE));
+    }
+
+    @Test
+    public void testCalculatorReportsParseFailures() {
+        final CountingListener listener = new CountingListener();
+        final DependencyCalculator<Integer, Node> calculator = new DependencyCalculator<Integer, Node>(
+                resources, resource -> {
+            if (resource == 5) {
+                throw new IllegalStateException("cannot parse 5");
+            }
+            return Node.create(resource);
+        }).withListener(listener);
+        try {
+            calculator.getDependencyNodes();
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+            assertEquals(5, listener.parsed);
+            assertEquals(1, listener.failed);
+        }
+    }
+
+    @Test
+    public void testCalculatorReportsEveryFailedResourceOfABatch() {
+        final DependencyParser<Integer, Node> parser = resource -> {
+            if (resource % 4 == 1) {
+                throw new IllegalStateException("cannot parse " + resource);
+            }
+            return Node.create(resource);
+        };
+        final CountingListener thrown = new CountingListener();
+        try {
+            new DependencyCalculator<>(resources, new ParallelDependencyParser<>(parser, Runnable::run, 2))
+                    .withListener(thrown)
+                    .getDependencyNodes();
+            fail("expected a DependencyException");
+        } catch (DependencyException expected) {
+            assertEquals(Arrays.asList(1, 5, 9), thrown.failedResources);
+        }
+
+        final CountingListener handled = new CountingListener();
+        final List<Integer> handlerFailures = new ArrayList<>();
+        new DependencyCalculator<>(resources, new ParallelDependencyParser<>(
+                parser, Runnable::run, 2, (resource, exception) -> handlerFailures.add(resource)))
+                .withListener(handled)
+                .getDependencyNodes();
+        assertEquals(Arrays.asList(1, 5, 9), handlerFailures);
+        assertEquals(Arrays.asList(1, 5, 9), handled.failedResources);
+        assertEquals(7, handled.parsed);
+    }
+
+    @Test
+    public void testConcurrentPathsReportResolves() {
+        final CountingListener streaming = new CountingListener();
+        final List<Integer> streamed = new DependencyCalculator<>(resources, Node::create)
+                .withListener(streaming)
+                .streamResourcesFor(ImmutableSet.of("9"))
+                .collect(toList());
+        assertEquals(resources, streamed);
+        assertEquals(10, streaming.nodesVisited);
+        assertEquals(9, streaming.edgesFollowed);
+        assertEquals(Integer.valueOf(1), streaming.phases.get(DependencyListener.Phase.RESOLVE));
+
+        final CountingListener batch = new CountingListener();
+        final Map<String, Set<String>> bundles = new LinkedHashMap<>();
+        bundles.put("a", ImmutableSet.of("9"));
+        bundles.put("b", ImmutableSet.of("9", "4"));
+        new DependencyCalculator<>(resources, Node::create)
+                .withListener(batch)
+                .getDependenciesFor(bundles);
+        assertEquals(2, batch.closureMisses);
+        assertEquals(1, batch.closureHits);
+        assertEquals(15, batch.nodesVisited);
+        assertEquals(Integer.valueOf(2), batch.phases.get(DependencyListener.Phase.RESOLVE));
+    }
+
+    @Test
+    public void testCachingCalculatorReportsTheClosureCache() {
+        final CountingListener listener = new CountingListener();
+        final CachingDependencyCalculator<Integer, Node> calculator = new CachingDependencyCalculator<>(
+                resources, Node::create, new DependencyCalculator.DefaultHelper<>(), resource -> 0,
+                new ClosureCache<>(1000));
+        calculator.withListener(listener);
+        assertEquals(10, calculator.getDependenciesFor(ImmutableSet.of("9")).size());
+        assertEquals(2, listener.closureMisses);
+        assertEquals(10, listener.nodesVisited);
+        assertEquals(10, calculator.getDependenciesFor(ImmutableSet.of("9")).size());
+        assertEquals(1, listener.closureHits);
+        assertEquals(Integer.valueOf(1), listener.phases.get(DependencyListener.Phase.RESOLVE));
+    }
+
+    @Test
+    public void testModuleResolverReportsHoisting() {
+        final List<Node> nodes = resources.stream().map(Node::create).collect(toList());
+        final CountingListener listener = new CountingListener();
+        new ModuleResolver<>(DependencyUtils.getDependencyMap(nodes), "common")
+                .withListener(listener)
+                .resolveModuleWithNamespace("a", "3")
+                .resolveModuleWithNamespace("b", "5");
+        assertEquals(Arrays.asList("a:4:0", "b:6:4"), listener.modules);
+        assertEquals(Integer.valueOf(2), listener.phases.get(DependencyListener.Phase.HOIST));
+    }
+
+    @Test
+    public void testJfrEvents() throws Exception {
+        final Path file = temporaryFolder.getRoot().toPath().resolve("dependencies.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.slieb.dependencies.Phase");
+            recording.enable("org.slieb.dependencies.Resolve");
+            recording.start();
+            new DependencyCalculator<>(resources, Node::create)
+                    .withListener(new JfrDependencyListener())
+                    .getResourcesFor(ImmutableSet.of("9"));
+            recording.stop();
+            recording.dump(file);
+        }
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(3, events.stream().filter(e -> e.getEventType().getName().endsWith(".Phase")).count());
+        final RecordedEvent resolve = events.stream()
+                .filter(e -> e.getEventType().getName().endsWith(".Resolve"))
+                .findFirst().get();
+        assertEquals(10, resolve.getLong("nodesVisited"));
+    }
+}
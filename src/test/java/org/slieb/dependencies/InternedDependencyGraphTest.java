@@ -0,0 +1,90 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+public class InternedDependencyGraphTest {
+
+    private final NamespaceTable table = new NamespaceTable();
+
+    private CompactDependencyNode<Integer> create(final int i) {
+        return CompactDependencyNode.create(table, i, ImmutableSet.of(String.valueOf(i)),
+                                            i == 0 ? ImmutableSet.of() : ImmutableSet.of(String.valueOf(i - 1)));
+    }
+
+    @Test
+    public void testInternsNamespacesOnce() {
+        final int[] ids = table.internAll(ImmutableList.of("b", "a", "b"));
+        assertEquals(2, ids.length);
+        assertTrue(ids[0] < ids[1]);
+        assertEquals(ids[0], table.intern("b"));
+        assertEquals("a", table.getNamespace(ids[1]));
+        assertEquals(-1, table.getId("c"));
+        final CompactDependencyNode<Integer> first = CompactDependencyNode.create(
+                table, 1, ImmutableSet.of(new String("goog.ui")), ImmutableSet.of("a", "b"));
+        final CompactDependencyNode<Integer> second = CompactDependencyNode.create(
+                table, 2, ImmutableSet.of(new String("goog.ui")), ImmutableSet.of());
+        assertSame(first.getProvides().iterator().next(), second.getProvides().iterator().next());
+        assertEquals(ImmutableSet.of("a", "b"), first.getRequires());
+        assertTrue(first.getRequires().contains("a"));
+        assertFalse(first.getRequires().contains("goog.ui"));
+        assertTrue(first.requiresId(table.getId("b")));
+    }
+
+    @Test
+    public void testResolvesLikeCompiledGraph() {
+        final List<CompactDependencyNode<Integer>> nodes = new ArrayList<>();
+        final List<Node> plainNodes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            nodes.add(create(i));
+            plainNodes.add(Node.create(i));
+        }
+        final List<Integer> interned = new ConcurrentDependencyResolver<>(InternedDependencyGraph.compile(table, nodes))
+                .resolveNamespaces(ImmutableList.of("49")).stream().map(DependencyNode::getResource).collect(toList());
+        final List<Integer> plain = new ConcurrentDependencyResolver<>(CompiledDependencyGraph.compile(plainNodes))
+                .resolveNamespaces(ImmutableList.of("49")).stream().map(DependencyNode::getResource).collect(toList());
+        assertEquals(plain, interned);
+    }
+
+    @Test
+    public void testParsesThroughNodeFactory() {
+        final DependencyNodeFactory<Integer, CompactDependencyNode<Integer>> factory = table.nodeFactory();
+        final DependencyParser<Integer, CompactDependencyNode<Integer>> parser = resource -> factory.create(
+                resource, Node.create(resource).getProvides(), Node.create(resource).getRequires());
+        final DependencyCalculator<Integer, CompactDependencyNode<Integer>> calculator = new DependencyCalculator<>(
+                ImmutableList.of(0, 1, 2), parser);
+        assertEquals(ImmutableList.of(0, 1, 2), calculator.getResourcesFor("2"));
+        assertTrue(calculator.getDependencyGraph(calculator.getDependencyNodes()) instanceof InternedDependencyGraph);
+    }
+
+    @Test
+    public void testCompilesNodesOfSeveralTablesWithoutInterning() {
+        final CompactDependencyNode<Integer> other = CompactDependencyNode.create(
+                new NamespaceTable(), 1, ImmutableSet.of("1"), ImmutableSet.of("0"));
+        final DependencyGraph<CompactDependencyNode<Integer>> graph =
+                InternedDependencyGraph.compileShared(ImmutableList.of(create(0), other));
+        assertTrue(graph instanceof CompiledDependencyGraph);
+        assertEquals(ImmutableList.of(graph.getProvider("0")), graph.getDependencies(other));
+        assertTrue(InternedDependencyGraph.compileShared(ImmutableList.of(create(0), create(1)))
+                           instanceof InternedDependencyGraph);
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testFailsOnUnprovidedNamespace() {
+        final InternedDependencyGraph<Integer> graph = InternedDependencyGraph.compile(table,
+                                                                                       ImmutableList.of(create(2)));
+        graph.getDependencies(graph.getProvider("2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNodesOfAnotherTable() {
+        InternedDependencyGraph.compile(new NamespaceTable(), ImmutableList.of(create(1)));
+    }
+}
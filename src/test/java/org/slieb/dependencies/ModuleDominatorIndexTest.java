@@ -0,0 +1,50 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class ModuleDominatorIndexTest {
+
+    // core <- left, right <- page; shared <- page, other
+    private final Map<String, Set<String>> moduleTree = ImmutableMap.<String, Set<String>>builder()
+            .put("core", ImmutableSet.of())
+            .put("left", ImmutableSet.of("core"))
+            .put("right", ImmutableSet.of("core"))
+            .put("page", ImmutableSet.of("left", "right", "shared"))
+            .put("shared", ImmutableSet.of())
+            .put("other", ImmutableSet.of("shared"))
+            .build();
+
+    @Test
+    public void testCommonModuleOfDiamond() {
+        ModuleDominatorIndex index = new ModuleDominatorIndex(moduleTree);
+        assertEquals("core", index.getCommonModule(ImmutableSet.of("left", "right")));
+        assertEquals("left", index.getCommonModule(ImmutableSet.of("left")));
+        assertEquals("shared", index.getCommonModule(ImmutableSet.of("shared", "other")));
+    }
+
+    @Test
+    public void testNoCommonModule() {
+        ModuleDominatorIndex index = new ModuleDominatorIndex(moduleTree);
+        assertNull(index.getCommonModule(ImmutableSet.of("page", "other")));
+        assertNull(index.getCommonModule(ImmutableSet.of("left", "shared")));
+        assertNull(index.getCommonModule(ImmutableSet.of("unknown")));
+    }
+
+    @Test
+    public void testCyclicModules() {
+        ModuleDominatorIndex index = new ModuleDominatorIndex(ImmutableMap.of(
+                "a", ImmutableSet.of("b"),
+                "b", ImmutableSet.of("a"),
+                "c", ImmutableSet.of("a")));
+        assertEquals("a", index.getCommonModule(ImmutableSet.of("a", "b", "c")));
+    }
+}
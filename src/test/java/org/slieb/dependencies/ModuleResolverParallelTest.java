@@ -0,0 +1,79 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.slieb.dependencies.DependencyUtils.getDependencyMap;
+
+public class ModuleResolverParallelTest {
+
+    ExecutorService executor;
+
+    List<Node> nodes;
+
+    Map<String, List<String>> modules;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        final Random random = new Random(7);
+        nodes = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            final Set<String> requires = new LinkedHashSet<>();
+            for (int j = 0; j < 3 && i > 0; j++) {
+                requires.add(String.valueOf(random.nextInt(i)));
+            }
+            nodes.add(new Node(i, ImmutableSet.of(String.valueOf(i)), requires));
+        }
+        modules = new LinkedHashMap<>();
+        for (int m = 0; m < 20; m++) {
+            final List<String> namespaces = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                namespaces.add(String.valueOf(200 + random.nextInt(200)));
+            }
+            modules.put("module" + m, namespaces);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private List<List<Object>> describe(final ModuleResolver<Node> resolver) {
+        final List<List<Object>> result = new ArrayList<>();
+        for (ModuleNode<Node> module : resolver.resolve()) {
+            result.add(ImmutableList.of(module.getName(), new TreeSet<>(module.getModuleDependencies()),
+                                        module.getNodes()));
+        }
+        return result;
+    }
+
+    @Test
+    public void testSameResultAsSequential() {
+        final Map<Node, Set<Node>> dependencyMap = getDependencyMap(nodes);
+        for (List<Node> baselist : ImmutableList.<List<Node>>of(ImmutableList.of(),
+                                                                 ImmutableList.of(nodes.get(3), nodes.get(17)))) {
+            final ModuleResolver<Node> sequential = new ModuleResolver<>(dependencyMap, "common", baselist);
+            modules.forEach((module, namespaces) -> namespaces.forEach(
+                    namespace -> sequential.resolveModuleWithNamespace(module, namespace)));
+            final ModuleResolver<Node> parallel = new ModuleResolver<>(dependencyMap, "common", baselist)
+                    .resolveModules(modules, executor);
+            assertEquals(describe(sequential), describe(parallel));
+        }
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testMissingNamespaceFailsInOrder() {
+        modules.put("broken", ImmutableList.of("missing"));
+        new ModuleResolver<>(getDependencyMap(nodes), "common").resolveModules(modules, executor);
+    }
+}
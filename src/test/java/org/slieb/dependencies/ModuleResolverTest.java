@@ -84,4 +84,37 @@ public class ModuleResolverTest {
         assertEquals(Lists.newArrayList(nodes.get(3), nodes.get(2), nodes.get(1)), result.get(0).getNodes());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testHoistsIntoSharedParentModule() throws Exception {
+        when(nodes.get(2).getRequires()).thenReturn(Sets.newHashSet("node_1"));
+        List<ModuleNode<DependencyNode>> result = new ModuleResolver<>(getDependencyMap(nodes), "common")
+                .resolveModuleDependency("packageA", "base")
+                .resolveModuleDependency("packageB", "base")
+                .resolveModuleWithNamespace("packageA", "node_1")
+                .resolveModuleWithNamespace("packageB", "node_1")
+                .resolveModuleWithNamespace("packageA", "node_2")
+                .resolve();
+        assertEquals(3, result.size());
+        assertEquals("base", result.get(0).getName());
+        assertEquals(Lists.newArrayList(nodes.get(1)), result.get(0).getNodes());
+        assertEquals("packageA", result.get(1).getName());
+        assertEquals(Lists.newArrayList(nodes.get(2)), result.get(1).getNodes());
+        assertEquals("packageB", result.get(2).getName());
+        assertEquals(Lists.newArrayList(), result.get(2).getNodes());
+    }
+
+    @Test
+    public void testSeesNodesAddedToParentModuleLater() throws Exception {
+        when(nodes.get(2).getRequires()).thenReturn(Sets.newHashSet("node_1"));
+        List<ModuleNode<DependencyNode>> result = new ModuleResolver<>(getDependencyMap(nodes), "common")
+                .resolveModuleDependency("packageA", "base")
+                .resolveModuleWithNamespace("packageA", "node_3")
+                .resolveModuleWithNamespace("base", "node_1")
+                .resolveModuleWithNamespace("packageA", "node_2")
+                .resolve();
+        assertEquals("base", result.get(0).getName());
+        assertEquals(Lists.newArrayList(nodes.get(1)), result.get(0).getNodes());
+        assertEquals("packageA", result.get(1).getName());
+        assertEquals(Lists.newArrayList(nodes.get(3), nodes.get(2)), result.get(1).getNodes());
+    }
+}
@@ -0,0 +1,101 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MutableDependencyGraphTest {
+
+    private List<Node> nodes;
+
+    private MutableDependencyGraph<Node> graph;
+
+    @Before
+    public void setup() {
+        nodes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            nodes.add(Node.create(i));
+        }
+        nodes.add(new Node(5, ImmutableSet.of("5"), ImmutableSet.of("1")));
+        graph = new MutableDependencyGraph<>(nodes);
+    }
+
+    @Test
+    public void testResolvesLikeACompiledGraph() {
+        assertEquals(new ConcurrentDependencyResolver<>(CompiledDependencyGraph.compile(nodes))
+                             .resolveNamespaces(ImmutableList.of("4", "5")),
+                     new ConcurrentDependencyResolver<>(graph).resolveNamespaces(ImmutableList.of("4", "5")));
+    }
+
+    @Test
+    public void testReplaceReportsDependents() {
+        final Node replacement = new Node(102, ImmutableSet.of("2"), ImmutableSet.of());
+        final MutableDependencyGraph.Change<Node> change = graph.replaceNode(nodes.get(2), replacement);
+        assertEquals(ImmutableSet.of("2", "3", "4"), change.getAffectedNamespaces());
+        assertEquals(ImmutableSet.of(replacement, nodes.get(3), nodes.get(4)), change.getAffectedNodes());
+        assertEquals(ImmutableList.of(replacement, nodes.get(3)),
+                     new ConcurrentDependencyResolver<>(graph).resolveNamespaces(ImmutableList.of("3")));
+        assertSame(replacement, graph.getNodes().toArray()[2]);
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        final Node shadow = new Node(200, ImmutableSet.of("1"), ImmutableSet.of());
+        assertTrue(graph.addNode(shadow).getAffectedNamespaces().isEmpty());
+        assertSame(nodes.get(1), graph.getProvider("1"));
+
+        final MutableDependencyGraph.Change<Node> change = graph.removeNode(nodes.get(1));
+        assertEquals(ImmutableSet.of("1", "2", "3", "4", "5"), change.getAffectedNamespaces());
+        assertSame(shadow, graph.getProvider("1"));
+        assertEquals(ImmutableList.of(shadow, nodes.get(5)),
+                     new ConcurrentDependencyResolver<>(graph).resolveNamespaces(ImmutableList.of("5")));
+
+        graph.removeNode(shadow);
+        try {
+            graph.getDependencies(nodes.get(2));
+            fail("expected a DependencyException");
+        } catch (DependencyException expected) {
+            assertEquals("nothing provides 1", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testSharesTheNodeSnapshotUntilAnUpdate() {
+        final Collection<Node> before = graph.getNodes();
+        assertSame(before, graph.getNodes());
+        assertEquals(6, graph.asDependencyMap().size());
+        graph.removeNode(nodes.get(5));
+        assertEquals(nodes, new ArrayList<>(before));
+        assertEquals(nodes.subList(0, 5), new ArrayList<>(graph.getNodes()));
+        assertEquals(5, graph.asDependencyMap().size());
+    }
+
+    @Test
+    public void testSelectiveCacheInvalidation() {
+        final ClosureCache<Node> cache = new ClosureCache<>(1000);
+        final ConcurrentDependencyResolver<Node> resolver = new ConcurrentDependencyResolver<>(graph);
+        cache.resolveNamespaces(resolver, ImmutableList.of("4"));
+        cache.resolveNamespaces(resolver, ImmutableList.of("1"));
+        final long sizeBefore = cache.getStats().getSize();
+        cache.invalidate(graph.replaceNode(nodes.get(3), new Node(103, ImmutableSet.of("3"), ImmutableSet.of()))
+                                 .getAffectedNamespaces());
+        assertEquals(sizeBefore - 2, cache.getStats().getSize());
+        assertEquals(2, cache.resolveNamespaces(resolver, ImmutableList.of("4")).size());
+    }
+
+    @Test
+    public void testModuleResolverOverGraph() {
+        final List<ModuleNode<Node>> modules = new ModuleResolver<>(graph, "common", ImmutableList.of())
+                .resolveModuleWithNamespace("a", "3")
+                .resolve();
+        assertEquals(ImmutableList.of(nodes.get(0), nodes.get(1), nodes.get(2), nodes.get(3)),
+                     modules.get(0).getNodes());
+    }
+}
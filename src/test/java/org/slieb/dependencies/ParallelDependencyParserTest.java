@@ -0,0 +1,93 @@
+package org.slieb.dependencies;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.*;
+
+
+public class ParallelDependencyParserTest {
+
+    ExecutorService executor;
+
+    List<Integer> resources;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+        resources = range(0, 500).boxed().collect(toList());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSameResultAsSequential() {
+        DependencyCalculator<Integer, Node> sequential = new DependencyCalculator<>(resources, Node::create);
+        DependencyCalculator<Integer, Node> parallel = new DependencyCalculator<>(
+                resources, new ParallelDependencyParser<>(Node::create, executor, 4));
+        assertEquals(sequential.getDependencyNodes().stream().map(Node::getResource).collect(toSet()),
+                     parallel.getDependencyNodes().stream().map(Node::getResource).collect(toSet()));
+        assertEquals(sequential.getResourcesFor("499"), parallel.getResourcesFor("499"));
+    }
+
+    @Test
+    public void testCapsInFlightParses() {
+        final AtomicInteger inFlight = new AtomicInteger(), maxInFlight = new AtomicInteger();
+        new ParallelDependencyParser<Integer, Node>(resource -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return Node.create(resource);
+        }, executor, 3).parseAll(resources.subList(0, 100));
+        assertTrue(maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void testReportsEveryFailure() {
+        final Map<Integer, RuntimeException> failures = new HashMap<>();
+        Map<Integer, Node> result = new ParallelDependencyParser<Integer, Node>(resource -> {
+            if (resource % 100 == 0) {
+                throw new IllegalStateException("broken " + resource);
+            }
+            return Node.create(resource);
+        }, executor, 4, failures::put).parseAll(resources);
+        assertEquals(495, result.size());
+        assertEquals(new HashSet<>(Arrays.asList(0, 100, 200, 300, 400)), failures.keySet());
+        assertEquals(resources.stream().filter(i -> i % 100 != 0).collect(toList()),
+                     new ArrayList<>(result.keySet()));
+    }
+
+    @Test
+    public void testThrowsAfterWholeBatch() {
+        final AtomicInteger parsed = new AtomicInteger();
+        try {
+            new ParallelDependencyParser<Integer, Node>(resource -> {
+                parsed.incrementAndGet();
+                if (resource == 0) {
+                    throw new IllegalStateException("broken");
+                }
+                return Node.create(resource);
+            }, executor, 4).parseAll(resources);
+            fail("expected a DependencyException");
+        } catch (DependencyException exception) {
+            assertEquals(1, exception.getSuppressed().length);
+            assertEquals(resources.size(), parsed.get());
+        }
+    }
+}
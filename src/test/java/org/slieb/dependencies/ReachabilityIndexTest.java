@@ -0,0 +1,64 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.assertEquals;
+
+
+public class ReachabilityIndexTest {
+
+    List<Node> nodes;
+
+    ConcurrentDependencyResolver<Node> resolver;
+
+    ReachabilityIndex<Node> index;
+
+    @Before
+    public void setUp() {
+        final Random random = new Random(3);
+        nodes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            final Set<String> requires = new LinkedHashSet<>();
+            for (int j = 0; i > 0 && j < 3; j++) {
+                requires.add(String.valueOf(random.nextInt(i)));
+            }
+            nodes.add(new Node(i, ImmutableSet.of(String.valueOf(i)), requires));
+        }
+        resolver = new ConcurrentDependencyResolver<>(CompiledDependencyGraph.compile(nodes),
+                                                      ImmutableList.of(nodes.get(5), nodes.get(900)));
+        index = new ReachabilityIndex<>(resolver);
+    }
+
+    @Test
+    public void testSameOrderAsResolver() {
+        final Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            final List<String> namespaces = range(0, 1 + random.nextInt(6))
+                    .mapToObj(j -> String.valueOf(random.nextInt(2000)))
+                    .distinct().collect(toList());
+            assertEquals(resolver.resolveNamespaces(namespaces), index.resolveNamespaces(namespaces));
+        }
+    }
+
+    @Test
+    public void testClosureUnion() {
+        final List<String> namespaces = ImmutableList.of("1999", "1200", "40");
+        final BitSet closure = index.getClosure(namespaces);
+        final List<Node> resolved = resolver.resolveNamespaces(namespaces);
+        assertEquals(resolved.size() - 2, closure.cardinality());
+        resolved.subList(2, resolved.size())
+                .forEach(node -> assertEquals(true, closure.get(index.getCompactGraph().getId(node))));
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testNothingProvides() {
+        index.resolveNamespaces(ImmutableList.of("missing"));
+    }
+}
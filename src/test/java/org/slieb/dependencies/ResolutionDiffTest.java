@@ -0,0 +1,84 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+import static org.junit.Assert.*;
+
+public class ResolutionDiffTest {
+
+    @Test
+    public void testSameResolutionHasNoEdits() {
+        final ResolutionDiff<String> diff = ResolutionDiff.between(ImmutableList.of("a", "b"),
+                                                                   ImmutableList.of("a", "b"));
+        assertTrue(diff.isEmpty());
+        assertEquals(1, diff.getPreviousIndex(1));
+    }
+
+    @Test
+    public void testFindsInsertsRemovesAndMoves() {
+        final List<String> previous = ImmutableList.of("base", "a", "b", "c", "d");
+        final List<String> current = ImmutableList.of("base", "b", "c", "a", "e");
+        final ResolutionDiff<String> diff = ResolutionDiff.between(previous, current);
+        assertEquals(1, diff.getRemovedCount());
+        assertEquals(1, diff.getInsertedCount());
+        assertEquals(1, diff.getMovedCount());
+        assertEquals(ResolutionDiff.Edit.Type.REMOVE, diff.getEdits().get(0).getType());
+        assertEquals("d", diff.getEdits().get(0).getNode());
+        assertEquals(ResolutionDiff.Edit.Type.MOVE, diff.getEdits().get(1).getType());
+        assertEquals("a", diff.getEdits().get(1).getNode());
+        assertEquals(1, diff.getEdits().get(1).getPreviousIndex());
+        assertEquals(3, diff.getEdits().get(1).getCurrentIndex());
+        assertEquals(-1, diff.getPreviousIndex(4));
+        assertEquals(current, diff.apply(previous));
+    }
+
+    @Test
+    public void testMovesAsFewNodesAsPossible() {
+        final Random random = new Random(3);
+        for (int round = 0; round < 50; round++) {
+            final List<Integer> previous = range(0, 200).boxed().collect(toList());
+            final List<Integer> current = new ArrayList<>(previous);
+            current.removeIf(node -> random.nextInt(10) == 0);
+            for (int i = 0; i < 10; i++) {
+                Collections.swap(current, random.nextInt(current.size()), random.nextInt(current.size()));
+                current.add(random.nextInt(current.size()), 1000 + round * 10 + i);
+            }
+            final ResolutionDiff<Integer> diff = ResolutionDiff.between(previous, current);
+            assertEquals(current, diff.apply(previous));
+            assertEquals(10, diff.getInsertedCount());
+            assertEquals(200 - (current.size() - 10) - diff.getRemovedCount(), 0);
+            assertEquals(current.size() - 10 - longestIncreasing(current), diff.getMovedCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsDuplicates() {
+        ResolutionDiff.between(ImmutableList.of("a"), ImmutableList.of("a", "a"));
+    }
+
+    private static int longestIncreasing(final List<Integer> nodes) {
+        final int[] best = new int[nodes.size()];
+        int result = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) >= 1000) {
+                continue;
+            }
+            best[i] = 1;
+            for (int j = 0; j < i; j++) {
+                if (nodes.get(j) < nodes.get(i)) {
+                    best[i] = Math.max(best[i], best[j] + 1);
+                }
+            }
+            result = Math.max(result, best[i]);
+        }
+        return result;
+    }
+}
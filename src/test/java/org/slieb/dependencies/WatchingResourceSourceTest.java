@@ -0,0 +1,185 @@
+package org.slieb.dependencies;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class WatchingResourceSourceTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public TemporaryFolder outsideFolder = new TemporaryFolder();
+
+    private Path root;
+
+    private WatchingResourceSource<FileNode> source;
+
+    private final LinkedBlockingQueue<MutableDependencyGraph.Change<FileNode>> changes = new LinkedBlockingQueue<>();
+
+    private final LinkedBlockingQueue<RuntimeException> failures = new LinkedBlockingQueue<>();
+
+    /**
+     * A file with a first line of provides and an optional second line of requires.
+     */
+    static class FileNode implements DependencyNode<Path> {
+
+        private final Path path;
+
+        private final Set<String> provides, requires;
+
+        FileNode(final Path path) {
+            try {
+                final List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+                this.path = path;
+                this.provides = words(lines, 0);
+                this.requires = words(lines, 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static Set<String> words(final List<String> lines,
+                                         final int index) {
+            return lines.size() > index && !lines.get(index).trim().isEmpty() ?
+                    new LinkedHashSet<>(Arrays.asList(lines.get(index).trim().split(" "))) :
+                    Collections.emptySet();
+        }
+
+        @Override
+        public Path getResource() {
+            return path;
+        }
+
+        @Override
+        public Set<String> getRequires() {
+            return requires;
+        }
+
+        @Override
+        public Set<String> getProvides() {
+            return provides;
+        }
+    }
+
+    private Path write(final String name,
+                       final String... lines) throws IOException {
+        final Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    @Before
+    public void setup() throws IOException {
+        root = temporaryFolder.getRoot().toPath().toRealPath();
+        write("a.js", "a", "b");
+        write("lib/b.js", "b");
+        write("notes.txt", "ignored");
+        source = new WatchingResourceSource<>(ImmutableList.of(root), path -> path.toString().endsWith(".js"),
+                                              FileNode::new, 20, (path, exception) -> failures.add(exception),
+                                              new ClosureCache<>(100));
+        source.addChangeListener(changes::add);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        source.close();
+    }
+
+    /**
+     * Waits for applied changes until the source resolves the namespace to the expected files.
+     */
+    private void awaitResources(final String namespace,
+                                final List<Path> expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!Objects.equals(expected, resourcesOrNull(namespace))) {
+            assertTrue("the change was not applied in time", System.nanoTime() < deadline);
+            changes.poll(100, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private List<Path> resourcesOrNull(final String namespace) {
+        try {
+            return source.getResourcesFor(ImmutableList.of(namespace));
+        } catch (DependencyException exception) {
+            return null;
+        }
+    }
+
+    @Test
+    public void testInitialScan() {
+        assertEquals(ImmutableList.of(root.resolve("lib/b.js"), root.resolve("a.js")),
+                     source.getResourcesFor(ImmutableList.of("a")));
+        assertEquals(2, ImmutableList.copyOf(source).size());
+    }
+
+    @Test
+    public void testPicksUpChanges() throws Exception {
+        assertEquals(2, source.getResourcesFor(ImmutableList.of("a")).size());
+        write("lib/c.js", "c");
+        write("lib/b.js", "b", "c");
+        awaitResources("a", ImmutableList.of(root.resolve("lib/c.js"), root.resolve("lib/b.js"), root.resolve("a.js")));
+        Files.delete(root.resolve("lib/c.js"));
+        awaitResources("a", null);
+        try {
+            source.getResourcesFor(ImmutableList.of("a"));
+            fail("expected a DependencyException");
+        } catch (DependencyException expected) {
+            assertEquals("nothing provides c", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testKeepsWatchingAfterAListenerFails() throws Exception {
+        final AtomicBoolean thrown = new AtomicBoolean();
+        source.addChangeListener(change -> {
+            if (thrown.compareAndSet(false, true)) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+        write("lib/c.js", "c");
+        final RuntimeException failure = failures.poll(30, TimeUnit.SECONDS);
+        assertNotNull("the failure was not reported in time", failure);
+        assertEquals("listener failed", failure.getMessage());
+        write("lib/b.js", "b", "c");
+        awaitResources("a", ImmutableList.of(root.resolve("lib/c.js"), root.resolve("lib/b.js"), root.resolve("a.js")));
+    }
+
+    @Test
+    public void testPicksUpNewDirectories() throws Exception {
+        write("new/deep/d.js", "d", "a");
+        awaitResources("d", ImmutableList.of(root.resolve("lib/b.js"), root.resolve("a.js"),
+                                             root.resolve("new/deep/d.js")));
+    }
+
+    @Test
+    public void testForgetsDeletedDirectories() throws Exception {
+        final Path file = write("gone/deep/e.js", "e");
+        awaitResources("e", ImmutableList.of(file));
+        Files.move(root.resolve("gone"), outsideFolder.getRoot().toPath().resolve("gone"));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (Lists.newArrayList(source).contains(file)) {
+            assertTrue("the change was not applied in time", System.nanoTime() < deadline);
+            changes.poll(100, TimeUnit.MILLISECONDS);
+        }
+        write("gone/f.js", "f");
+        awaitResources("f", ImmutableList.of(root.resolve("gone/f.js")));
+    }
+}